@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * Generates the datasets of the benchmarks. The data is random but repeatable: the same parameters always produce the
+ * same content.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class BenchmarkData {
+
+    /** The number of different types of the generated columns: string, long, double, decimal and timestamp. */
+    static final int TYPE_COUNT = 5;
+
+    private static final long SEED = 20200102L;
+
+    private static final long BASE_TIME = 1577970855003L;
+
+    private BenchmarkData() {
+        // static class
+    }
+
+    static CSVConfiguration configuration() {
+        return CSVConfiguration.custom().withEol("\n").withTimeZoneName("UTC").build();
+    }
+
+    /**
+     * Generates a dataset. The type of each column is its index modulo {@link #TYPE_COUNT}.
+     *
+     * @param configuration the configuration of the data
+     * @param rows          the number of rows
+     * @param columns       the number of columns of each row
+     * @param quoteDensity  the fraction of the string values that contain a separator or a quote character
+     * @return the CSV data
+     */
+    static String generate(final CSVConfiguration configuration, final int rows, final int columns,
+                           final double quoteDensity) {
+
+        Random random = new Random(SEED);
+        CSVStringBuilder builder = new CSVStringBuilder(configuration, rows * columns * 12);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                switch (column % TYPE_COUNT) {
+                    case 0:
+                        builder.append(text(random, quoteDensity));
+                        break;
+                    case 1:
+                        builder.append(random.nextInt(1_000_000));
+                        break;
+                    case 2:
+                        builder.append(random.nextDouble() * 1000);
+                        break;
+                    case 3:
+                        builder.append(BigDecimal.valueOf(random.nextInt(10_000_000), 2));
+                        break;
+                    default:
+                        builder.append(new Timestamp(BASE_TIME + random.nextInt(1_000_000_000)));
+                        break;
+                }
+            }
+            builder.eol();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generates a string value.
+     *
+     * @param random       the source of the value
+     * @param quoteDensity the probability of the value containing a separator and a quote character
+     * @return the value
+     */
+    static String text(final Random random, final double quoteDensity) {
+        if (random.nextDouble() < quoteDensity) {
+            return "text, \"quoted\" " + random.nextInt(100_000);
+        }
+        return "plain text " + random.nextInt(100_000);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accesses the fields of rows that have already been read: the strings, the reusable views and the typed getters.
+ * Each operation visits all the fields of one row.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CSVObjectBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"4", "16", "64"})
+    private int columns;
+
+    @Param({"0.0", "0.1", "1.0"})
+    private double quoteDensity;
+
+    private CSVObject[] objects;
+    private final CSVField field = new CSVField();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CSVConfiguration configuration = BenchmarkData.configuration();
+        byte[] data = BenchmarkData.generate(configuration, ROWS, columns, quoteDensity) //
+                .getBytes(StandardCharsets.UTF_8);
+        objects = new CSVObject[ROWS];
+        try (CSVReader reader = new CSVReader(configuration, new ByteArrayInputStream(data))) {
+            reader.readInto(objects);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void get(final Blackhole blackhole) {
+        for (CSVObject object : objects) {
+            for (int i = 0; i < object.getSize(); i++) {
+                blackhole.consume(object.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void getField(final Blackhole blackhole) {
+        for (CSVObject object : objects) {
+            for (int i = 0; i < object.getSize(); i++) {
+                blackhole.consume(object.getField(i, field).length());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void getTyped(final Blackhole blackhole) {
+        for (CSVObject object : objects) {
+            for (int i = 0; i < object.getSize(); i++) {
+                switch (i % BenchmarkData.TYPE_COUNT) {
+                    case 0:
+                        blackhole.consume(object.getCharSequence(i));
+                        break;
+                    case 1:
+                        blackhole.consume(object.getLong(i));
+                        break;
+                    case 2:
+                        blackhole.consume(object.getDouble(i));
+                        break;
+                    case 3:
+                        blackhole.consume(object.getBigDecimal(i));
+                        break;
+                    default:
+                        blackhole.consume(object.getTimestamp(i));
+                        break;
+                }
+            }
+        }
+    }
+}
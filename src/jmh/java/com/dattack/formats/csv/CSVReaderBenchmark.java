@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a whole dataset with {@link CSVReader#next()}. Each operation reads all the rows, from a file (mapped into
+ * memory or read through a channel) or from a stream in memory, with all the columns or only three of them.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSVReaderBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    @Param({"4", "16", "64"})
+    private int columns;
+
+    @Param({"0.0", "0.1", "1.0"})
+    private double quoteDensity;
+
+    @Param({"false", "true"})
+    private boolean memoryMapped;
+
+    private CSVConfiguration configuration;
+    private CSVConfiguration projectedConfiguration;
+    private byte[] data;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withMemoryMapped(memoryMapped) //
+                .build();
+        projectedConfiguration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withMemoryMapped(memoryMapped) //
+                .withColumns(0, columns / 2, columns - 1) //
+                .build();
+        data = BenchmarkData.generate(configuration, rows, columns, quoteDensity).getBytes(StandardCharsets.UTF_8);
+        path = Files.createTempFile("csv-benchmark-", ".csv");
+        Files.write(path, data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static int readAll(final CSVReader reader, final Blackhole blackhole) throws IOException {
+
+        int count = 0;
+        CSVObject object;
+        while ((object = reader.next()) != null) {
+            blackhole.consume(object);
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int nextFromFile(final Blackhole blackhole) throws IOException {
+        try (CSVReader reader = new CSVReader(configuration, path)) {
+            return readAll(reader, blackhole);
+        }
+    }
+
+    @Benchmark
+    public int nextFromStream(final Blackhole blackhole) throws IOException {
+        try (CSVReader reader = new CSVReader(configuration, new ByteArrayInputStream(data))) {
+            return readAll(reader, blackhole);
+        }
+    }
+
+    @Benchmark
+    public int projectedFromFile(final Blackhole blackhole) throws IOException {
+        try (CSVReader reader = new CSVReader(projectedConfiguration, path)) {
+            return readAll(reader, blackhole);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends values with each {@code append} method of {@link CSVStringBuilder}. Each operation appends one value; the
+ * builder is cleared before each group of values, so the measure doesn't include the growth of the buffer.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CSVStringBuilderBenchmark {
+
+    private static final int VALUES = 1024;
+
+    private static final long BASE_TIME = 1577970855003L;
+
+    private CSVStringBuilder builder;
+    private final String[] plainStrings = new String[VALUES];
+    private final String[] quotedStrings = new String[VALUES];
+    private final int[] ints = new int[VALUES];
+    private final long[] longs = new long[VALUES];
+    private final double[] doubles = new double[VALUES];
+    private final float[] floats = new float[VALUES];
+    private final Integer[] boxedInts = new Integer[VALUES];
+    private final Long[] boxedLongs = new Long[VALUES];
+    private final Double[] boxedDoubles = new Double[VALUES];
+    private final Float[] boxedFloats = new Float[VALUES];
+    private final BigDecimal[] decimals = new BigDecimal[VALUES];
+    private final Boolean[] booleans = new Boolean[VALUES];
+    private final Date[] dates = new Date[VALUES];
+    private final java.sql.Date[] sqlDates = new java.sql.Date[VALUES];
+    private final Time[] times = new Time[VALUES];
+    private final Timestamp[] timestamps = new Timestamp[VALUES];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        builder = new CSVStringBuilder(BenchmarkData.configuration(), VALUES * 64);
+        Random random = new Random(VALUES);
+        for (int i = 0; i < VALUES; i++) {
+            plainStrings[i] = BenchmarkData.text(random, 0);
+            quotedStrings[i] = BenchmarkData.text(random, 1);
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            doubles[i] = random.nextDouble() * 1000;
+            floats[i] = random.nextFloat() * 1000;
+            boxedInts[i] = ints[i];
+            boxedLongs[i] = longs[i];
+            boxedDoubles[i] = doubles[i];
+            boxedFloats[i] = floats[i];
+            decimals[i] = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+            booleans[i] = random.nextBoolean();
+            long time = BASE_TIME + random.nextInt(1_000_000_000);
+            dates[i] = new Date(time);
+            sqlDates[i] = new java.sql.Date(time);
+            times[i] = new Time(time);
+            timestamps[i] = new Timestamp(time);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendPlainString() {
+        builder.clear();
+        for (String value : plainStrings) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendQuotedString() {
+        builder.clear();
+        for (String value : quotedStrings) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedString() {
+        builder.clear();
+        for (String value : plainStrings) {
+            builder.append(value, "[%24s]");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendInt() {
+        builder.clear();
+        for (int value : ints) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendLong() {
+        builder.clear();
+        for (long value : longs) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendDouble() {
+        builder.clear();
+        for (double value : doubles) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFloat() {
+        builder.clear();
+        for (float value : floats) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBoxedInteger() {
+        builder.clear();
+        for (Integer value : boxedInts) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedInteger() {
+        builder.clear();
+        for (Integer value : boxedInts) {
+            builder.append(value, "%012d");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBoxedLong() {
+        builder.clear();
+        for (Long value : boxedLongs) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedLong() {
+        builder.clear();
+        for (Long value : boxedLongs) {
+            builder.append(value, "%d");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBoxedDouble() {
+        builder.clear();
+        for (Double value : boxedDoubles) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedDouble() {
+        builder.clear();
+        for (Double value : boxedDoubles) {
+            builder.append(value, "%.2f");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBoxedFloat() {
+        builder.clear();
+        for (Float value : boxedFloats) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedFloat() {
+        builder.clear();
+        for (Float value : boxedFloats) {
+            builder.append(value, "%.3f");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBigDecimal() {
+        builder.clear();
+        for (BigDecimal value : decimals) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendFormattedBigDecimal() {
+        builder.clear();
+        for (BigDecimal value : decimals) {
+            builder.append(value, "%010.1f");
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendBoolean() {
+        builder.clear();
+        for (Boolean value : booleans) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendDate() {
+        builder.clear();
+        for (Date value : dates) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendSqlDate() {
+        builder.clear();
+        for (java.sql.Date value : sqlDates) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendTime() {
+        builder.clear();
+        for (Time value : times) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int appendTimestamp() {
+        builder.clear();
+        for (Timestamp value : timestamps) {
+            builder.append(value);
+        }
+        return builder.getBuffer().length();
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes CSV rows from a background thread. The producers publish the values of each row into a bounded ring buffer
+ * of pre-allocated slots, and a single consumer thread encodes them with a {@link CSVWriter} and writes them in
+ * batches, so the producers don't pay for the encoding or the I/O.
+ *
+ * <p>A row is published either with {@link #write(Object...)} or, to avoid boxing the primitive values and creating
+ * the array of values, by claiming a slot with {@link #claim()}, appending the values with the typed methods of
+ * {@link Row} and calling {@link Row#publish()}.</p>
+ *
+ * <p>When the buffer is full (see {@link CSVConfiguration#QUEUE_CAPACITY_PROPERTY_NAME}), the producers wait for
+ * room or, if {@link CSVConfiguration#DROP_WHEN_FULL_PROPERTY_NAME} is enabled, the row is discarded. The encoded
+ * content is written each time it reaches the flush threshold of the configuration, and the destination is flushed
+ * when {@link #flush()} is called, when the writer is closed and once the linger time has elapsed since the first row
+ * that hasn't been flushed was written (see {@link CSVConfiguration#LINGER_MILLIS_PROPERTY_NAME}). This class is
+ * thread-safe.</p>
+ *
+ * <p>The values are written using the {@code append} method of their class: strings, numbers, booleans and dates
+ * are supported, and the objects of other classes are written as strings.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public class AsyncCSVWriter implements Closeable, Flushable {
+
+    private static final int INITIAL_SLOT_SIZE = 16;
+
+    private static final byte OBJECT = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final CSVWriter writer;
+    private final boolean dropWhenFull;
+    private final long lingerNanos;
+    private final Thread consumer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // the ring buffer: the slots between head and head + count are claimed, and the consumer owns the published
+    // slots at the head
+    private final Row[] slots;
+    private int head;
+    private int count;
+
+    private long publishedRows;
+    private long writtenRows;
+    private long flushedRows;
+    private long flushRequest;
+    private long droppedRows;
+    // the time when the rows written but not flushed must be flushed
+    private long lingerDeadline;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Constructs an asynchronous CSV writer. The writer is closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param writer        the destination of the data
+     */
+    public AsyncCSVWriter(final CSVConfiguration configuration, final Writer writer) {
+        this(configuration, new CSVWriter(configuration, writer));
+    }
+
+    /**
+     * Constructs an asynchronous CSV writer that encodes the data using the charset of the configuration. The stream
+     * is closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param outputStream  the destination of the data
+     */
+    public AsyncCSVWriter(final CSVConfiguration configuration, final OutputStream outputStream) {
+        this(configuration, new CSVWriter(configuration, outputStream));
+    }
+
+    /**
+     * Constructs an asynchronous CSV writer that encodes the data using the charset of the configuration. The
+     * channel is closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param channel       the destination of the data
+     */
+    public AsyncCSVWriter(final CSVConfiguration configuration, final WritableByteChannel channel) {
+        this(configuration, new CSVWriter(configuration, channel));
+    }
+
+    private AsyncCSVWriter(final CSVConfiguration configuration, final CSVWriter writer) {
+
+        this.writer = writer;
+        this.dropWhenFull = configuration.isDropWhenFull();
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getLingerMillis());
+        this.slots = new Row[configuration.getQueueCapacity()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Row();
+        }
+
+        this.consumer = new Thread(this::run, "csv-writer-" + THREAD_COUNTER.incrementAndGet());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Publishes a row to be written. The values are copied, so the array can be reused by the caller.
+     *
+     * @param values the values of the row
+     * @return <code>true</code> if the row has been queued, <code>false</code> if it has been discarded because the
+     *         buffer is full
+     * @throws InterruptedException  if the thread is interrupted while waiting for room in the buffer
+     * @throws IllegalStateException if the writer has been closed
+     * @throws UncheckedIOException  if a previous row couldn't be written
+     */
+    public boolean write(final Object... values) throws InterruptedException {
+
+        Objects.requireNonNull(values);
+        Row row = claim();
+        if (row == null) {
+            return false;
+        }
+        boolean published = false;
+        try {
+            for (Object value : values) {
+                row.append(value);
+            }
+            row.publish();
+            published = true;
+        } finally {
+            if (!published) {
+                row.cancel();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claims the next slot of the buffer. The values of the row are appended to the returned slot, which is queued
+     * when {@link Row#publish()} is called. The rows claimed later by other threads aren't written until this one is
+     * released, so it must be published as soon as possible or, if an error occurs while the values are appended,
+     * cancelled using {@link Row#cancel()}.
+     *
+     * @return the slot of the row or <code>null</code> if the row must be discarded because the buffer is full
+     * @throws InterruptedException  if the thread is interrupted while waiting for room in the buffer
+     * @throws IllegalStateException if the writer has been closed
+     * @throws UncheckedIOException  if a previous row couldn't be written
+     */
+    public Row claim() throws InterruptedException {
+
+        lock.lock();
+        try {
+            while (count == slots.length) {
+                checkState();
+                if (dropWhenFull) {
+                    droppedRows++;
+                    return null;
+                }
+                notFull.await();
+            }
+            checkState();
+            return slots[(head + count++) % slots.length];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(final Row row) {
+
+        lock.lock();
+        try {
+            if (row.published) {
+                throw new IllegalStateException("The row has already been published");
+            }
+            checkState();
+            row.published = true;
+            publishedRows++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel(final Row row) {
+
+        lock.lock();
+        try {
+            if (row.published) {
+                throw new IllegalStateException("The row has already been published");
+            }
+            // the slot is released without checking the state, so the rows claimed later can be written
+            row.cancelled = true;
+            row.published = true;
+            publishedRows++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkState() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("The writer is closed");
+        }
+    }
+
+    /**
+     * Returns the number of rows discarded because the buffer was full.
+     *
+     * @return the number of discarded rows
+     */
+    public long getDroppedRows() {
+        lock.lock();
+        try {
+            return droppedRows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the rows published before this call have been written, and flushes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+
+        lock.lock();
+        try {
+            long target = publishedRows;
+            flushRequest = Math.max(flushRequest, target);
+            notEmpty.signal();
+            while (flushedRows < target && failure == null && consumer.isAlive()) {
+                flushed.await();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the CSV data");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending rows, closes the destination and stops the background thread. The rows published after
+     * this call are rejected.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the CSV writer");
+        }
+
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the rows written but not flushed must be flushed now.
+     */
+    private boolean mustFlush() {
+        return writtenRows > flushedRows && (flushRequest > flushedRows
+                || lingerNanos > 0 && System.nanoTime() - lingerDeadline >= 0);
+    }
+
+    private void run() {
+
+        try {
+            boolean done = false;
+            while (!done) {
+                int first;
+                int size;
+                lock.lock();
+                try {
+                    while (!slots[head].published && !closed && !mustFlush()) {
+                        if (writtenRows > flushedRows && lingerNanos > 0) {
+                            notEmpty.awaitNanos(lingerDeadline - System.nanoTime());
+                        } else {
+                            notEmpty.await();
+                        }
+                    }
+                    first = head;
+                    size = 0;
+                    while (size < count && slots[(first + size) % slots.length].published) {
+                        size++;
+                    }
+                    done = closed && size == 0;
+                } finally {
+                    lock.unlock();
+                }
+
+                for (int i = 0; i < size; i++) {
+                    slots[(first + i) % slots.length].writeTo(writer);
+                }
+
+                long written;
+                boolean flush;
+                lock.lock();
+                try {
+                    for (int i = 0; i < size; i++) {
+                        slots[(first + i) % slots.length].published = false;
+                        slots[(first + i) % slots.length].cancelled = false;
+                    }
+                    if (size > 0 && writtenRows == flushedRows) {
+                        lingerDeadline = System.nanoTime() + lingerNanos;
+                    }
+                    head = (head + size) % slots.length;
+                    count -= size;
+                    writtenRows += size;
+                    written = writtenRows;
+                    flush = mustFlush();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (done) {
+                    writer.close();
+                } else if (flush) {
+                    writer.flush();
+                }
+                if (done || flush) {
+                    lock.lock();
+                    try {
+                        flushedRows = written;
+                        flushed.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            fail(e);
+        } catch (Error e) {
+            fail(e);
+            throw e;
+        }
+    }
+
+    private void fail(final Throwable e) {
+
+        lock.lock();
+        try {
+            if (e instanceof IOException) {
+                failure = (IOException) e;
+            } else if (e instanceof UncheckedIOException) {
+                failure = ((UncheckedIOException) e).getCause();
+            } else {
+                failure = new IOException("Unable to write the CSV data", e);
+            }
+            notFull.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writer.close();
+        } catch (IOException | RuntimeException ignored) {
+            // the first error is reported
+        }
+    }
+
+    /**
+     * A pre-allocated slot of the buffer, returned by {@link AsyncCSVWriter#claim()}. The primitive values are
+     * stored without boxing them. The slot is reused once the row has been written, so it must not be used after
+     * calling {@link #publish()} or {@link #cancel()}.
+     */
+    public final class Row {
+
+        private byte[] kinds = new byte[INITIAL_SLOT_SIZE];
+        // the long and boolean values, and the bits of the double values
+        private long[] primitives = new long[INITIAL_SLOT_SIZE];
+        private Object[] objects = new Object[INITIAL_SLOT_SIZE];
+        private int size;
+        // guarded by the lock of the writer
+        private boolean published;
+        private boolean cancelled;
+
+        private Row() {
+            // created by the writer
+        }
+
+        private int next(final byte kind) {
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                primitives = Arrays.copyOf(primitives, capacity);
+                objects = Arrays.copyOf(objects, capacity);
+            }
+            kinds[size] = kind;
+            return size++;
+        }
+
+        public Row append(final long value) {
+            int index = next(LONG);
+            primitives[index] = value;
+            return this;
+        }
+
+        public Row append(final double value) {
+            int index = next(DOUBLE);
+            primitives[index] = Double.doubleToRawLongBits(value);
+            return this;
+        }
+
+        public Row append(final boolean value) {
+            int index = next(BOOLEAN);
+            primitives[index] = value ? 1 : 0;
+            return this;
+        }
+
+        /**
+         * Appends a value that is written using the {@code append} method of its class.
+         *
+         * @param value the value to append
+         * @return this row
+         */
+        public Row append(final Object value) {
+            int index = next(OBJECT);
+            objects[index] = value;
+            return this;
+        }
+
+        /**
+         * Queues this row to be written.
+         *
+         * @throws IllegalStateException if the row has already been published or the writer has been closed
+         * @throws UncheckedIOException  if a previous row couldn't be written
+         */
+        public void publish() {
+            AsyncCSVWriter.this.publish(this);
+        }
+
+        /**
+         * Discards this row, releasing its slot without writing it. This is the way to give the slot back when an
+         * error occurs before the row is published.
+         *
+         * @throws IllegalStateException if the row has already been published
+         */
+        public void cancel() {
+            AsyncCSVWriter.this.cancel(this);
+        }
+
+        private void writeTo(final CSVWriter csvWriter) {
+            if (cancelled) {
+                Arrays.fill(objects, 0, size, null);
+                size = 0;
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                switch (kinds[i]) {
+                    case LONG:
+                        csvWriter.append(primitives[i]);
+                        break;
+                    case DOUBLE:
+                        csvWriter.append(Double.longBitsToDouble(primitives[i]));
+                        break;
+                    case BOOLEAN:
+                        csvWriter.append(Boolean.valueOf(primitives[i] != 0));
+                        break;
+                    default:
+                        csvWriter.appendObject(objects[i]);
+                        objects[i] = null;
+                        break;
+                }
+            }
+            csvWriter.eol();
+            size = 0;
+        }
+    }
+}
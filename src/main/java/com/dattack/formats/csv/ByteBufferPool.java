@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of byte buffers of the same size, shared by all the writers. The buffers released when the pool
+ * is full are left to the garbage collector.
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class ByteBufferPool {
+
+    static final int BUFFER_SIZE = 32 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final ByteBufferPool HEAP = new ByteBufferPool(false);
+
+    private static final ByteBufferPool DIRECT = new ByteBufferPool(true);
+
+    private final boolean direct;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private ByteBufferPool(final boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Returns the pool of heap or direct buffers.
+     *
+     * @param direct whether the buffers are allocated outside the heap
+     * @return the pool
+     */
+    static ByteBufferPool getInstance(final boolean direct) {
+        return direct ? DIRECT : HEAP;
+    }
+
+    /**
+     * Returns an empty buffer, taken from the pool when possible.
+     *
+     * @return the buffer
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return direct ? ByteBuffer.allocateDirect(BUFFER_SIZE) : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        size.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used after this call.
+     *
+     * @param buffer the buffer
+     */
+    void release(final ByteBuffer buffer) {
+        if (size.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            buffer.clear();
+            buffers.offer(buffer);
+        } else {
+            size.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level counterpart of {@link CSVTokenizer}. It finds the records and field boundaries directly in a
+ * {@link ByteBuffer}, so the content of a field is only decoded when it is requested. The buffer is never modified:
+ * fields containing quote or escape sequences are flagged and unescaped when they are decoded.
+ *
+ * <p>The separator, quote, escape and comment characters must be ASCII characters and the data must be encoded
+ * with an ASCII-compatible charset, such as UTF-8 or ISO-8859-1, so these characters can't be part of a multi-byte
+ * sequence.</p>
+ *
+ * <p>This class is not thread-safe: the offsets are overwritten by each call to {@code next}.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+final class CSVByteTokenizer {
+
+    /**
+     * Flag set in the end offset of the fields that must be unescaped when decoded.
+     */
+    static final int ESCAPED_FLAG = 0x80000000;
+
+    private static final int DEFAULT_FIELDS = 16;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int NONE = -1;
+    private static final int NO_CHAR = 0x100; // never equal to a byte value
+
+    private final CSVConfiguration configuration;
+    private final byte[] separator;
+    private final byte separatorByte;
+    private final int quoteByte;
+    private final int escapeByte;
+    private final byte commentByte;
+    private final boolean multiline;
+
+    private ColumnProjection projection;
+    private int[] offsets;
+    private int size;
+    private int recordStart;
+
+    CSVByteTokenizer(final CSVConfiguration configuration) {
+        if (!isSupported(configuration)) {
+            throw new IllegalArgumentException("The separator, quote, escape and comment characters must be ASCII");
+        }
+        this.configuration = configuration;
+        String separatorStr = configuration.getSeparator();
+        this.separator = new byte[separatorStr.length()];
+        for (int i = 0; i < separator.length; i++) {
+            separator[i] = (byte) separatorStr.charAt(i);
+        }
+        this.separatorByte = separator[0];
+        this.quoteByte = configuration.getQuoteChar() == '\u0000' ? NO_CHAR : configuration.getQuoteChar();
+        this.escapeByte = configuration.getEscapeChar() == '\u0000' ? NO_CHAR : configuration.getEscapeChar();
+        this.commentByte = (byte) configuration.getCommentChar();
+        this.multiline = configuration.isMultiline();
+        this.offsets = new int[DEFAULT_FIELDS * 2];
+    }
+
+    /**
+     * Restricts the fields returned by the next calls to {@code next} to the columns of a projection. The fields of
+     * the other columns are scanned but not stored.
+     *
+     * @param value the resolved projection, or <code>null</code> to return all the fields
+     */
+    void setProjection(final ColumnProjection value) {
+        this.projection = value;
+    }
+
+    /**
+     * Checks whether the special characters of a configuration can be scanned at byte level: they must be ASCII
+     * characters and the charset must encode them as single bytes that never appear inside other characters.
+     *
+     * @param configuration the configuration to check
+     * @return <code>true</code> if the configuration can be used with this tokenizer
+     */
+    static boolean isSupported(final CSVConfiguration configuration) {
+        if (!isAsciiCompatible(configuration.getCharset())) {
+            return false;
+        }
+        String separatorStr = configuration.getSeparator();
+        if (separatorStr.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < separatorStr.length(); i++) {
+            if (!isAscii(separatorStr.charAt(i))) {
+                return false;
+            }
+        }
+        return isAscii(configuration.getQuoteChar()) && isAscii(configuration.getEscapeChar())
+                && isAscii(configuration.getCommentChar());
+    }
+
+    /**
+     * Checks whether a charset encodes the ASCII characters as themselves and uses only bytes greater than 0x7F
+     * for the rest of characters.
+     */
+    static boolean isAsciiCompatible(final Charset charset) {
+        String name = charset.name();
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+    }
+
+    private static boolean isAscii(final char c) {
+        return c < 0x80;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        // same criteria as String.trim()
+        return b >= 0 && b <= ' ';
+    }
+
+    private static boolean isEol(final byte b) {
+        return b == LF || b == CR;
+    }
+
+    /**
+     * Looks for the next record in the region {@code [position, limit)} of the buffer, skipping blank and comment
+     * lines. Leading and trailing whitespaces of the record are ignored.
+     *
+     * @param buffer   the buffer to scan
+     * @param position the position where the scan starts
+     * @param limit    the position where the available data ends
+     * @param eof      <code>true</code> when no more data exists after <code>limit</code>
+     * @return the position after the record or -1 if the region doesn't contain a complete record and
+     *         <code>eof</code> is <code>false</code>. When the method returns a position and {@link #getSize()} is
+     *         zero, the rest of the region contains only blank or comment lines.
+     */
+    int next(final ByteBuffer buffer, final int position, final int limit, final boolean eof) {
+
+        size = 0;
+        int index = position;
+        while (true) {
+            while (index < limit && isWhitespace(buffer.get(index))) {
+                index++;
+            }
+            if (index >= limit) {
+                return eof ? limit : NONE;
+            }
+            if (buffer.get(index) != commentByte) {
+                break;
+            }
+            while (index < limit && !isEol(buffer.get(index))) {
+                index++;
+            }
+            if (index >= limit && !eof) {
+                return NONE;
+            }
+        }
+
+        recordStart = index;
+        if (projection != null) {
+            size = projection.getSize();
+            if (offsets.length < size * 2) {
+                offsets = new int[size * 2];
+            }
+            // the columns missing from the record are empty
+            Arrays.fill(offsets, 0, size * 2, index);
+        }
+        return tokenize(buffer, index, limit, eof);
+    }
+
+    private int tokenize(final ByteBuffer buffer, final int position, final int limit, final boolean eof) {
+
+        int index = position;
+        int column = 0;
+        while (true) {
+            final int start = index;
+            boolean quoted = index < limit && buffer.get(index) == quoteByte;
+            boolean escaped = false;
+            int closeQuote = NONE;
+            if (quoted) {
+                index++;
+            }
+
+            boolean endOfRecord = false;
+            while (true) {
+                if (index >= limit) {
+                    if (!eof) {
+                        return NONE;
+                    }
+                    endOfRecord = true;
+                    break;
+                }
+                byte b = buffer.get(index);
+                if (quoted && !multiline && isEol(b)) {
+                    // unterminated quoted field: the line break ends the record
+                    endOfRecord = true;
+                    break;
+                }
+                if (quoted) {
+                    if (b == quoteByte) {
+                        if (index + 1 < limit && buffer.get(index + 1) == quoteByte) {
+                            escaped = true;
+                            index += 2;
+                            continue;
+                        }
+                        if (index + 1 >= limit && !eof) {
+                            // can't decide whether the quote is doubled
+                            return NONE;
+                        }
+                        quoted = false;
+                        closeQuote = index;
+                    } else if (b == escapeByte && index + 1 < limit && buffer.get(index + 1) == quoteByte) {
+                        escaped = true;
+                        index += 2;
+                        continue;
+                    }
+                } else {
+                    if (isEol(b)) {
+                        endOfRecord = true;
+                        break;
+                    }
+                    if (b == separatorByte && isSeparator(buffer, index, limit)) {
+                        break;
+                    }
+                    if (b == escapeByte && index + 1 < limit && buffer.get(index + 1) == separatorByte) {
+                        escaped = true;
+                        index += 2;
+                        continue;
+                    }
+                }
+                index++;
+            }
+
+            int end = index;
+            if (endOfRecord) {
+                int min = closeQuote == NONE ? start : closeQuote + 1;
+                while (end > min && isWhitespace(buffer.get(end - 1))) {
+                    end--;
+                }
+            }
+
+            // the fields of the columns that aren't projected have no slot
+            int slot = projection == null ? size : projection.getSlot(column);
+            if (slot >= 0) {
+                if (quoted) {
+                    // unterminated quoted field at the end of the record
+                    setField(slot, start, end, true);
+                } else if (closeQuote != NONE) {
+                    if (!escaped && closeQuote == end - 1) {
+                        setField(slot, start + 1, closeQuote, false);
+                    } else {
+                        setField(slot, start, end, true);
+                    }
+                } else {
+                    setField(slot, start, end, escaped);
+                }
+            }
+
+            if (endOfRecord) {
+                return index;
+            }
+            if (projection != null && column == projection.getLastColumn() && !multiline) {
+                // without quoted line breaks, the rest of the record can't contain a line break
+                return skipLine(buffer, index, limit, eof);
+            }
+            index += separator.length;
+            column++;
+        }
+    }
+
+    private static int skipLine(final ByteBuffer buffer, final int position, final int limit, final boolean eof) {
+        for (int index = position; index < limit; index++) {
+            if (isEol(buffer.get(index))) {
+                return index;
+            }
+        }
+        return eof ? limit : NONE;
+    }
+
+    private boolean isSeparator(final ByteBuffer buffer, final int index, final int limit) {
+        if (separator.length == 1) {
+            return true;
+        }
+        if (index + separator.length > limit) {
+            return false;
+        }
+        for (int i = 1; i < separator.length; i++) {
+            if (buffer.get(index + i) != separator[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setField(final int slot, final int start, final int end, final boolean escaped) {
+        if (slot == size) {
+            // a new field, the slots of the projected columns are already counted
+            if (size * 2 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            size++;
+        }
+        offsets[slot * 2] = start;
+        offsets[slot * 2 + 1] = escaped ? end | ESCAPED_FLAG : end;
+    }
+
+    /**
+     * Returns the configuration of this tokenizer.
+     */
+    CSVConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the position of the first character of the record found by the last call to {@code next}.
+     */
+    int getRecordStart() {
+        return recordStart;
+    }
+
+    /**
+     * Returns the number of fields found by the last call to {@code next}.
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the offsets found by the last call to {@code next}. The array is reused by the next calls.
+     */
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns a copy of the offsets found by the last call to {@code next}. The end offset of the fields that must be
+     * unescaped is flagged with {@link #ESCAPED_FLAG}.
+     */
+    int[] copyOffsets() {
+        return Arrays.copyOf(offsets, size * 2);
+    }
+
+    /**
+     * Removes the quote and escape sequences of a raw field, following the same rules as {@link CSVTokenizer}.
+     *
+     * @param bytes  the raw content of the field
+     * @param length the number of bytes of the field
+     * @return the length of the unescaped field
+     */
+    int unescape(final byte[] bytes, final int length) {
+
+        int read = 0;
+        int write = 0;
+        boolean quoted = length > 0 && bytes[0] == quoteByte;
+        if (quoted) {
+            read++;
+        }
+        while (read < length) {
+            byte b = bytes[read];
+            if (quoted) {
+                if (b == quoteByte) {
+                    if (read + 1 < length && bytes[read + 1] == quoteByte) {
+                        bytes[write++] = b;
+                        read += 2;
+                    } else {
+                        quoted = false;
+                        read++;
+                    }
+                    continue;
+                }
+                if (b == escapeByte && read + 1 < length && bytes[read + 1] == quoteByte) {
+                    bytes[write++] = (byte) quoteByte;
+                    read += 2;
+                    continue;
+                }
+            } else if (b == escapeByte && read + 1 < length && bytes[read + 1] == separatorByte) {
+                bytes[write++] = separatorByte;
+                read += 2;
+                continue;
+            }
+            bytes[write++] = b;
+            read++;
+        }
+        return write;
+    }
+}
@@ -15,8 +15,11 @@
  */
 package com.dattack.formats.csv;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.Properties;
 import java.util.TimeZone;
 
@@ -99,6 +102,59 @@ public final class CSVConfiguration {
      */
     public static final String TIMEZONE_NAME_PROPERTY_NAME = "csv.timezone";
 
+    /**
+     * The name of the property indicating whether the files must be read by mapping them into memory. Default value
+     * is <i>false</i>.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY_NAME = "csv.reader.mapped";
+
+    /**
+     * The name of the property indicating whether a quoted field may contain line breaks. When disabled, a line
+     * break always ends a record, which allows splitting a file at any line. Default value is <i>false</i>.
+     */
+    public static final String MULTILINE_PROPERTY_NAME = "csv.multiline";
+
+    /**
+     * The name of the property containing the charset of the data. Default value is <i>UTF-8</i>.
+     */
+    public static final String CHARSET_PROPERTY_NAME = "csv.charset";
+
+    /**
+     * The name of the property containing the size, in characters, of the buffer used to read the data. Default
+     * value is <i>65536</i>.
+     */
+    public static final String BUFFER_SIZE_PROPERTY_NAME = "csv.reader.buffer.size";
+
+    /**
+     * The name of the property containing the number of characters that {@link CSVWriter} keeps in memory before
+     * writing them to the output. Default value is <i>65536</i>.
+     */
+    public static final String FLUSH_THRESHOLD_PROPERTY_NAME = "csv.writer.flush.threshold";
+
+    /**
+     * The name of the property containing the number of rows that {@link AsyncCSVWriter} can hold before they are
+     * written. Default value is <i>1024</i>.
+     */
+    public static final String QUEUE_CAPACITY_PROPERTY_NAME = "csv.writer.queue.capacity";
+
+    /**
+     * The name of the property indicating whether {@link AsyncCSVWriter} discards the rows that don't fit in its
+     * queue instead of blocking the producer. Default value is <i>false</i>.
+     */
+    public static final String DROP_WHEN_FULL_PROPERTY_NAME = "csv.writer.queue.drop";
+
+    /**
+     * The name of the property containing the maximum number of milliseconds that {@link AsyncCSVWriter} keeps the
+     * written rows in memory before flushing them. Zero disables the timed flushes. Default value is <i>100</i>.
+     */
+    public static final String LINGER_MILLIS_PROPERTY_NAME = "csv.writer.linger.ms";
+
+    /**
+     * The name of the property indicating whether {@link CSVWriter} uses direct byte buffers when it encodes the data
+     * as UTF-8 for a file channel. Default value is <i>false</i>.
+     */
+    public static final String DIRECT_BUFFERS_PROPERTY_NAME = "csv.writer.direct.buffers";
+
     private final char commentChar;
     private final String eol;
     private final char escapeChar;
@@ -110,7 +166,28 @@ public final class CSVConfiguration {
     private final DateFormat sqlDateFormat;
     private final DateFormat timeFormat;
     private final DateFormat timestampFormat;
+    private final String datePattern;
+    private final String sqlDatePattern;
+    private final String timePattern;
+    private final String timestampPattern;
+    private final DateFieldFormatter dateFieldFormatter;
+    private final DateFieldFormatter sqlDateFieldFormatter;
+    private final DateFieldFormatter timeFieldFormatter;
+    private final DateFieldFormatter timestampFieldFormatter;
+    private final FieldEscaper escaper;
     private final String separator;
+    private final boolean memoryMapped;
+    private final boolean multiline;
+    private final Charset charset;
+    private final int bufferSize;
+    private final int flushThreshold;
+    private final int queueCapacity;
+    private final boolean dropWhenFull;
+    private final long lingerMillis;
+    private final boolean directBuffers;
+    private final CSVMetricsListener metricsListener;
+    private final ColumnProjection projection;
+    private final CSVRowFilter filter;
 
     /**
      * Builder class used to build a {@link CSVConfiguration} instance.
@@ -155,6 +232,14 @@ public final class CSVConfiguration {
 
         private static final String DEFAULT_TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
 
+        private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+        private static final int DEFAULT_FLUSH_THRESHOLD = 64 * 1024;
+
+        private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+        private static final long DEFAULT_LINGER_MILLIS = 100;
+
         // ---------------------------------------------------------------------
 
 
@@ -171,6 +256,18 @@ public final class CSVConfiguration {
         private String timeFormat;
         private String timestampFormat;
         private String timeZoneName;
+        private boolean memoryMapped;
+        private boolean multiline;
+        private Charset charset;
+        private int bufferSize;
+        private int flushThreshold;
+        private int queueCapacity;
+        private boolean dropWhenFull;
+        private long lingerMillis;
+        private boolean directBuffers;
+        private CSVMetricsListener metricsListener;
+        private ColumnProjection projection;
+        private CSVRowFilter filter;
 
         /**
          * Class constructor using custom configuration.
@@ -191,6 +288,38 @@ public final class CSVConfiguration {
             this.timeFormat = properties.getProperty(TIME_FORMAT_PROPERTY_NAME, DEFAULT_TIME_FORMAT);
             this.timestampFormat = properties.getProperty(TIMESTAMP_FORMAT_PROPERTY_NAME, DEFAULT_TIMESTAMP_FORMAT);
             this.timeZoneName = properties.getProperty(TIMEZONE_NAME_PROPERTY_NAME, null);
+            this.memoryMapped = Boolean.parseBoolean(properties.getProperty(MEMORY_MAPPED_PROPERTY_NAME));
+            this.multiline = Boolean.parseBoolean(properties.getProperty(MULTILINE_PROPERTY_NAME));
+            String charsetName = properties.getProperty(CHARSET_PROPERTY_NAME);
+            this.charset = charsetName == null ? StandardCharsets.UTF_8 : Charset.forName(charsetName);
+            String bufferSizeValue = properties.getProperty(BUFFER_SIZE_PROPERTY_NAME);
+            this.bufferSize = bufferSizeValue == null ? DEFAULT_BUFFER_SIZE
+                    : checkSize(Integer.parseInt(bufferSizeValue.trim()), "buffer size");
+            String flushThresholdValue = properties.getProperty(FLUSH_THRESHOLD_PROPERTY_NAME);
+            this.flushThreshold = flushThresholdValue == null ? DEFAULT_FLUSH_THRESHOLD
+                    : checkSize(Integer.parseInt(flushThresholdValue.trim()), "flush threshold");
+            String queueCapacityValue = properties.getProperty(QUEUE_CAPACITY_PROPERTY_NAME);
+            this.queueCapacity = queueCapacityValue == null ? DEFAULT_QUEUE_CAPACITY
+                    : checkSize(Integer.parseInt(queueCapacityValue.trim()), "queue capacity");
+            this.dropWhenFull = Boolean.parseBoolean(properties.getProperty(DROP_WHEN_FULL_PROPERTY_NAME));
+            String lingerMillisValue = properties.getProperty(LINGER_MILLIS_PROPERTY_NAME);
+            this.lingerMillis = lingerMillisValue == null ? DEFAULT_LINGER_MILLIS
+                    : checkLinger(Long.parseLong(lingerMillisValue.trim()));
+            this.directBuffers = Boolean.parseBoolean(properties.getProperty(DIRECT_BUFFERS_PROPERTY_NAME));
+        }
+
+        private static int checkSize(final int value, final String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException("The " + name + " must be greater than zero: " + value);
+            }
+            return value;
+        }
+
+        private static long checkLinger(final long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("The linger time must not be negative: " + value);
+            }
+            return value;
         }
 
         private char getChar(String value, char defaultValue) {
@@ -217,6 +346,18 @@ public final class CSVConfiguration {
             this.timeFormat = DEFAULT_TIME_FORMAT;
             this.timestampFormat = DEFAULT_TIMESTAMP_FORMAT;
             this.timeZoneName = null;
+            this.memoryMapped = false;
+            this.multiline = false;
+            this.charset = StandardCharsets.UTF_8;
+            this.bufferSize = DEFAULT_BUFFER_SIZE;
+            this.flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+            this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+            this.dropWhenFull = false;
+            this.lingerMillis = DEFAULT_LINGER_MILLIS;
+            this.directBuffers = false;
+            this.metricsListener = null;
+            this.projection = null;
+            this.filter = null;
         }
 
         public CSVConfiguration build() {
@@ -288,6 +429,171 @@ public final class CSVConfiguration {
             return this;
         }
 
+        /**
+         * Sets whether the files must be read by mapping them into memory. In this mode, the field boundaries are
+         * located directly on the mapped bytes and each field is decoded only when it is read. The mode is ignored
+         * when the separator, quote, escape or comment characters are not ASCII characters, when the charset isn't
+         * compatible with ASCII (as UTF-8 or ISO-8859-1 are) and when the data isn't read from an uncompressed
+         * file.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withMemoryMapped(final boolean value) {
+            this.memoryMapped = value;
+            return this;
+        }
+
+        /**
+         * Sets whether a quoted field may contain line breaks. When disabled, a line break always ends a record and
+         * the files can be split at any line to be read in parallel.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withMultiline(final boolean value) {
+            this.multiline = value;
+            return this;
+        }
+
+        /**
+         * Selects the columns returned by the readers. The rows contain only the selected columns, in the given
+         * order; the other fields are skipped without unescaping them or creating strings and, in each record, the
+         * fields after the last selected column aren't scanned. A selected column missing from a record is read as
+         * an empty field. This setting can't be loaded from properties.
+         *
+         * @param columns the zero-based indexes of the columns, or none to read all the columns
+         * @return the instance of CSVConfigurationBuilder
+         * @throws IllegalArgumentException if an index is negative or repeated
+         */
+        public CsvConfigurationBuilder withColumns(final int... columns) {
+            this.projection = ColumnProjection.ofColumns(columns);
+            return this;
+        }
+
+        /**
+         * Selects the columns returned by the readers by their names. The first record of the data is the header
+         * containing the names; it is used to locate the columns and isn't returned. Otherwise, the selection works
+         * as {@link #withColumns(int...)}, which it replaces. This setting can't be loaded from properties.
+         *
+         * @param names the names of the columns, or none to read all the columns
+         * @return the instance of CSVConfigurationBuilder
+         * @throws IllegalArgumentException if a name is <code>null</code> or repeated
+         */
+        public CsvConfigurationBuilder withColumnNames(final String... names) {
+            this.projection = ColumnProjection.ofNames(names);
+            return this;
+        }
+
+        /**
+         * Sets the condition that the rows must match to be returned by the readers. The condition is evaluated on
+         * the fields of each record before the row is created, so the rows that don't match cost only the scan of
+         * their fields. This setting can't be loaded from properties.
+         *
+         * @param value the condition, or <code>null</code> to return all the rows
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withFilter(final CSVRowFilter value) {
+            this.filter = value;
+            return this;
+        }
+
+        /**
+         * Sets the charset of the data read from files, streams and channels.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withCharset(final Charset value) {
+            if (value != null) {
+                this.charset = value;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the size, in characters, of the buffer used to read the data. Large sequential reads benefit from
+         * buffers of several hundred kilobytes.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withBufferSize(final int value) {
+            this.bufferSize = checkSize(value, "buffer size");
+            return this;
+        }
+
+        /**
+         * Sets the number of characters that {@link CSVWriter} keeps in memory before writing them to the output.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withFlushThreshold(final int value) {
+            this.flushThreshold = checkSize(value, "flush threshold");
+            return this;
+        }
+
+        /**
+         * Sets the number of rows that {@link AsyncCSVWriter} can hold before they are written.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withQueueCapacity(final int value) {
+            this.queueCapacity = checkSize(value, "queue capacity");
+            return this;
+        }
+
+        /**
+         * Sets whether {@link AsyncCSVWriter} discards the rows that don't fit in its queue. When disabled, the
+         * producers wait until there is room for the row.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withDropWhenFull(final boolean value) {
+            this.dropWhenFull = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of milliseconds that {@link AsyncCSVWriter} keeps the written rows in memory before
+         * flushing them. Zero disables the timed flushes, so the rows are written when the flush threshold is reached,
+         * on {@link AsyncCSVWriter#flush()} and on close.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withLingerMillis(final long value) {
+            this.lingerMillis = checkLinger(value);
+            return this;
+        }
+
+        /**
+         * Sets whether {@link CSVWriter} uses direct byte buffers when it encodes the data as UTF-8 for a file
+         * channel. Direct buffers avoid a copy inside the channel, at the cost of a copy from the encoding array.
+         *
+         * @param value the value to set
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withDirectBuffers(final boolean value) {
+            this.directBuffers = value;
+            return this;
+        }
+
+        /**
+         * Sets the listener notified of the rows and bytes read and written using the configuration, such as a
+         * {@link CSVMetrics} instance. This setting can't be loaded from properties.
+         *
+         * @param value the listener, or <code>null</code> to disable the instrumentation
+         * @return the instance of CSVConfigurationBuilder
+         */
+        public CsvConfigurationBuilder withMetricsListener(final CSVMetricsListener value) {
+            this.metricsListener = value;
+            return this;
+        }
+
         /**
          * Sets the comment character delimiter.
          *
@@ -386,14 +692,37 @@ public final class CSVConfiguration {
         this.quoteChar = builder.quoteChar;
         this.escapeChar = builder.escapeChar;
         this.eol = builder.eol;
+        this.memoryMapped = builder.memoryMapped;
+        this.multiline = builder.multiline;
+        this.charset = builder.charset;
+        this.bufferSize = builder.bufferSize;
+        this.flushThreshold = builder.flushThreshold;
+        this.queueCapacity = builder.queueCapacity;
+        this.dropWhenFull = builder.dropWhenFull;
+        this.lingerMillis = builder.lingerMillis;
+        this.directBuffers = builder.directBuffers;
+        this.metricsListener = builder.metricsListener;
+        this.projection = builder.projection;
+        this.filter = builder.filter;
+        this.datePattern = builder.dateFormat;
+        this.sqlDatePattern = builder.sqlDateFormat;
+        this.timePattern = builder.timeFormat;
+        this.timestampPattern = builder.timestampFormat;
         this.dateFormat = new SimpleDateFormat(builder.dateFormat);
         this.sqlDateFormat = new SimpleDateFormat(builder.sqlDateFormat);
         this.timeFormat = new SimpleDateFormat(builder.timeFormat);
         this.timestampFormat = new SimpleDateFormat(builder.timestampFormat);
         if (builder.timeZoneName != null) {
-            this.dateFormat.setTimeZone(TimeZone.getTimeZone(builder.timeZoneName));
-            this.timestampFormat.setTimeZone(TimeZone.getTimeZone(builder.timeZoneName));
+            TimeZone timeZone = TimeZone.getTimeZone(builder.timeZoneName);
+            this.dateFormat.setTimeZone(timeZone);
+            this.timestampFormat.setTimeZone(timeZone);
         }
+        // the time zone only applies to java.util.Date and java.sql.Timestamp, as it always did
+        this.dateFieldFormatter = new DateFieldFormatter(builder.dateFormat, dateFormat.getTimeZone());
+        this.sqlDateFieldFormatter = new DateFieldFormatter(builder.sqlDateFormat, sqlDateFormat.getTimeZone());
+        this.timeFieldFormatter = new DateFieldFormatter(builder.timeFormat, timeFormat.getTimeZone());
+        this.timestampFieldFormatter = new DateFieldFormatter(builder.timestampFormat, timestampFormat.getTimeZone());
+        this.escaper = new FieldEscaper(this);
     }
 
     public static CsvConfigurationBuilder custom() {
@@ -408,20 +737,103 @@ public final class CSVConfiguration {
         return commentChar;
     }
 
+    /**
+     * Returns a new {@link DateFormat} for the values of type java.util.Date. {@link DateFormat} isn't thread-safe,
+     * so each call returns a new copy; {@link #getDateFormatter()} returns a thread-safe equivalent.
+     *
+     * @return a new instance of the format
+     */
     public DateFormat getDateFormat() {
-        return dateFormat;
+        return (DateFormat) dateFormat.clone();
     }
 
+    /**
+     * Returns a new {@link DateFormat} for the values of type java.sql.Date.
+     *
+     * @return a new instance of the format
+     * @see #getDateFormat()
+     */
     public DateFormat getSqlDateFormat() {
-        return sqlDateFormat;
+        return (DateFormat) sqlDateFormat.clone();
     }
 
+    /**
+     * Returns a new {@link DateFormat} for the values of type java.sql.Time.
+     *
+     * @return a new instance of the format
+     * @see #getDateFormat()
+     */
     public DateFormat getTimeFormat() {
-        return timeFormat;
+        return (DateFormat) timeFormat.clone();
     }
 
+    /**
+     * Returns a new {@link DateFormat} for the values of type java.sql.Timestamp.
+     *
+     * @return a new instance of the format
+     * @see #getDateFormat()
+     */
     public DateFormat getTimestampFormat() {
-        return timestampFormat;
+        return (DateFormat) timestampFormat.clone();
+    }
+
+    /**
+     * Returns the thread-safe formatter for the values of type java.util.Date. It includes the configured time zone
+     * and produces the same text as {@link #getDateFormat()} for the values since 1900; the older values may differ,
+     * because {@code java.time} uses the proleptic ISO calendar.
+     *
+     * @return the formatter
+     */
+    public DateTimeFormatter getDateFormatter() {
+        return dateFieldFormatter.getFormatter();
+    }
+
+    public DateTimeFormatter getSqlDateFormatter() {
+        return sqlDateFieldFormatter.getFormatter();
+    }
+
+    public DateTimeFormatter getTimeFormatter() {
+        return timeFieldFormatter.getFormatter();
+    }
+
+    public DateTimeFormatter getTimestampFormatter() {
+        return timestampFieldFormatter.getFormatter();
+    }
+
+    DateFieldFormatter getDateFieldFormatter() {
+        return dateFieldFormatter;
+    }
+
+    DateFieldFormatter getSqlDateFieldFormatter() {
+        return sqlDateFieldFormatter;
+    }
+
+    DateFieldFormatter getTimeFieldFormatter() {
+        return timeFieldFormatter;
+    }
+
+    DateFieldFormatter getTimestampFieldFormatter() {
+        return timestampFieldFormatter;
+    }
+
+    FieldEscaper getEscaper() {
+        return escaper;
+    }
+
+    public String getDatePattern() {
+        return datePattern;
+    }
+
+    public String getSqlDatePattern() {
+        return sqlDatePattern;
+    }
+
+    public String getTimePattern() {
+        return timePattern;
+    }
+
+    public String getTimestampPattern() {
+        return timestampPattern;
     }
 
     public String getEol() {
@@ -451,4 +863,70 @@ public final class CSVConfiguration {
     public String getSeparator() {
         return separator;
     }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public boolean isMultiline() {
+        return multiline;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public boolean isDropWhenFull() {
+        return dropWhenFull;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+    public CSVMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Returns the indexes of the columns selected with {@link CsvConfigurationBuilder#withColumns(int...)}.
+     *
+     * @return a copy of the indexes, or <code>null</code> when all the columns are read or they are selected by name
+     */
+    public int[] getColumns() {
+        return projection == null ? null : projection.getColumns();
+    }
+
+    /**
+     * Returns the names of the columns selected with {@link CsvConfigurationBuilder#withColumnNames(String...)}.
+     *
+     * @return a copy of the names, or <code>null</code> when they aren't selected by name
+     */
+    public String[] getColumnNames() {
+        return projection == null ? null : projection.getNames();
+    }
+
+    public CSVRowFilter getFilter() {
+        return filter;
+    }
+
+    ColumnProjection getProjection() {
+        return projection;
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A mutable {@link CharSequence} view over the content of a field of a {@link CSVObject}. The same instance can be
+ * reused to access any number of fields without creating intermediate strings:
+ *
+ * <pre>
+ * CSVField field = new CSVField();
+ * for (int i = 0; i &lt; csvObject.getSize(); i++) {
+ *     csvObject.getField(i, field);
+ *     // ... use field as a CharSequence
+ * }
+ * </pre>
+ *
+ * <p>A view is only valid until it is bound to another field. This class is not thread-safe.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public final class CSVField implements CharSequence {
+
+    private static final char[] EMPTY = new char[0];
+
+    private char[] chars;
+    private ByteBuffer bytes;
+    private int start;
+    private int length;
+    private char[] scratch;
+
+    /**
+     * Creates a view that is not bound to any field yet.
+     */
+    public CSVField() {
+        this.chars = EMPTY;
+    }
+
+    /**
+     * Binds this view to a region of a char array.
+     */
+    CSVField wrap(final char[] buffer, final int from, final int to) {
+        this.chars = buffer;
+        this.bytes = null;
+        this.start = from;
+        this.length = to - from;
+        return this;
+    }
+
+    /**
+     * Binds this view to a region of a buffer containing only ASCII bytes.
+     */
+    CSVField wrapAscii(final ByteBuffer buffer, final int from, final int to) {
+        this.chars = null;
+        this.bytes = buffer;
+        this.start = from;
+        this.length = to - from;
+        return this;
+    }
+
+    /**
+     * Binds this view to the content of a string, copying it into an internal buffer that is reused between calls.
+     */
+    CSVField copyOf(final String value) {
+        int size = value.length();
+        if (scratch == null || scratch.length < size) {
+            scratch = new char[Math.max(size, 16)];
+        }
+        value.getChars(0, size, scratch, 0);
+        return wrap(scratch, 0, size);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        if (chars != null) {
+            return chars[start + index];
+        }
+        return (char) (bytes.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(final int from, final int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+        return toString().substring(from, to);
+    }
+
+    /**
+     * Compares the content of this field to the specified {@code CharSequence}.
+     *
+     * @param value the sequence to compare to
+     * @return <code>true</code> if this field represents the same sequence of chars as the specified sequence
+     */
+    public boolean contentEquals(final CharSequence value) {
+        if (value == null || value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (chars != null) {
+            return new String(chars, start, length);
+        }
+        char[] copy = new char[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = (char) (bytes.get(start + i) & 0xFF);
+        }
+        return new String(copy);
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * An index of the rows of a CSV file: it records the offset where the scan of every <i>N</i>th row starts, so a
+ * {@link CSVReader} can move to any row by reading at most <i>N</i> - 1 rows (see {@link CSVReader#seekToRow(long)})
+ * and knows the number of rows without reading the file. The records are located with the same rules as the
+ * readers, so the quoted line breaks are respected when the configuration allows them.
+ *
+ * <p>The index can be saved in a sidecar file next to the data, named as the data file followed by
+ * {@value #SIDECAR_EXTENSION}. The offsets are stored as variable-length differences, so each entry usually takes
+ * three or four bytes. The index remembers the size and modification time of the data file and the settings of the
+ * configuration that change how the records are located, and {@link #load(CSVConfiguration, Path)} rebuilds it when
+ * they change.</p>
+ *
+ * <pre>
+ * CSVIndex index = CSVIndex.load(configuration, path);
+ * try (CSVReader reader = new CSVReader(configuration, path, index)) {
+ *     reader.seekToRow(index.getRowCount() - 100);
+ *     // ... read the last 100 rows
+ * }
+ * </pre>
+ *
+ * <p>The rows are numbered from zero as they are returned by a reader without filter: the blank and comment lines
+ * aren't rows, and neither is the header when the columns are selected by name. Only uncompressed files whose
+ * configuration is supported by the memory-mapped mode (see
+ * {@link CSVConfiguration.CsvConfigurationBuilder#withMemoryMapped(boolean)}) can be indexed. Instances are
+ * immutable.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public final class CSVIndex {
+
+    /**
+     * The extension appended to the name of the data file to obtain the name of its sidecar file.
+     */
+    public static final String SIDECAR_EXTENSION = ".idx";
+
+    /**
+     * The number of rows between the entries of the indexes built by {@link #load(CSVConfiguration, Path)}.
+     */
+    public static final int DEFAULT_INTERVAL = 1024;
+
+    private static final int MAGIC = 0x43535649; // "CSVI"
+    private static final int VERSION = 1;
+
+    private final int interval;
+    private final long rowCount;
+    private final long dataSize;
+    private final long lastModified;
+    private final int layoutHash;
+    private final long[] offsets;
+
+    private CSVIndex(final int interval, final long rowCount, final long dataSize, final long lastModified,
+                     final int layoutHash, final long[] offsets) {
+        this.interval = interval;
+        this.rowCount = rowCount;
+        this.dataSize = dataSize;
+        this.lastModified = lastModified;
+        this.layoutHash = layoutHash;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Computes a hash of the settings that change the offsets or the numbering of the rows.
+     */
+    private static int layoutHash(final CSVConfiguration configuration) {
+        ColumnProjection projection = configuration.getProjection();
+        boolean hasHeader = projection != null && !projection.isResolved();
+        return Objects.hash(configuration.getSeparator(), configuration.getQuoteChar(),
+                configuration.getEscapeChar(), configuration.getCommentChar(), configuration.isMultiline(),
+                configuration.getCharset().name(), hasHeader);
+    }
+
+    /**
+     * Returns the path of the sidecar file of a data file.
+     *
+     * @param dataPath the path of the data file
+     * @return the path of the sidecar file, in the same directory
+     */
+    public static Path getSidecarPath(final Path dataPath) {
+        return dataPath.resolveSibling(dataPath.getFileName() + SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Reads the index of a file from its sidecar file or, if the sidecar file doesn't exist or is out of date,
+     * builds the index with an entry every {@link #DEFAULT_INTERVAL} rows and saves it in the sidecar file.
+     *
+     * @param configuration the CSV configuration
+     * @param dataPath      the path of the data file
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static CSVIndex load(final CSVConfiguration configuration, final Path dataPath) throws IOException {
+
+        Path sidecarPath = getSidecarPath(dataPath);
+        try {
+            CSVIndex index = read(sidecarPath);
+            if (index.isCurrent(configuration, dataPath)) {
+                return index;
+            }
+        } catch (IOException e) {
+            // missing or unreadable, it is rebuilt
+        }
+
+        CSVIndex index = build(configuration, dataPath, DEFAULT_INTERVAL);
+        index.write(sidecarPath);
+        return index;
+    }
+
+    /**
+     * Builds the index of a file, scanning it once.
+     *
+     * @param configuration the CSV configuration
+     * @param dataPath      the path of the data file
+     * @param interval      the number of rows between the entries of the index
+     * @return the index
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalArgumentException if the interval isn't positive or the file can't be indexed
+     */
+    public static CSVIndex build(final CSVConfiguration configuration, final Path dataPath, final int interval)
+            throws IOException {
+
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be greater than zero: " + interval);
+        }
+        checkIndexable(configuration, dataPath);
+
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            // the attributes are read before the data, so a concurrent change makes the index out of date
+            long dataSize = channel.size();
+            long lastModified = Files.getLastModifiedTime(dataPath).toMillis();
+
+            long[] entries = new long[16];
+            int entryCount = 0;
+            long rows = 0;
+            try (MappedRecordReader reader = new MappedRecordReader(configuration, channel,
+                    configuration.getCharset(), MappedRecordReader.DEFAULT_WINDOW_SIZE, 0, Long.MAX_VALUE,
+                    configuration.getProjection())) {
+                reader.readHeader();
+                while (true) {
+                    long offset = reader.getLastRecordEnd();
+                    if (!reader.skipRecord()) {
+                        break;
+                    }
+                    if (rows % interval == 0) {
+                        if (entryCount == entries.length) {
+                            entries = Arrays.copyOf(entries, entryCount * 2);
+                        }
+                        entries[entryCount++] = offset;
+                    }
+                    rows++;
+                }
+            }
+            return new CSVIndex(interval, rows, dataSize, lastModified, layoutHash(configuration),
+                    Arrays.copyOf(entries, entryCount));
+        }
+    }
+
+    /**
+     * Checks that a file can be read with the offsets of an index.
+     *
+     * @throws IllegalArgumentException if the file is compressed or the configuration isn't supported
+     */
+    static void checkIndexable(final CSVConfiguration configuration, final Path dataPath) {
+        if (dataPath.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            throw new IllegalArgumentException("A compressed file can't be indexed: " + dataPath);
+        }
+        if (!CSVByteTokenizer.isSupported(configuration)) {
+            throw new IllegalArgumentException("The separator, quote, escape and comment characters must be ASCII");
+        }
+    }
+
+    /**
+     * Reads an index saved by {@link #write(Path)}.
+     *
+     * @param indexPath the path of the index file
+     * @return the index
+     * @throws IOException if an I/O error occurs or the file doesn't contain an index
+     */
+    public static CSVIndex read(final Path indexPath) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not an index file: " + indexPath);
+            }
+            int interval = in.readInt();
+            long rowCount = in.readLong();
+            long dataSize = in.readLong();
+            long lastModified = in.readLong();
+            int layoutHash = in.readInt();
+            int entryCount = in.readInt();
+            if (interval <= 0 || rowCount < 0 || entryCount != (rowCount + interval - 1) / interval) {
+                throw new IOException("Corrupted index file: " + indexPath);
+            }
+
+            long[] offsets = new long[entryCount];
+            long offset = 0;
+            for (int i = 0; i < entryCount; i++) {
+                offset += readVarLong(in);
+                offsets[i] = offset;
+            }
+            return new CSVIndex(interval, rowCount, dataSize, lastModified, layoutHash, offsets);
+        } catch (EOFException e) {
+            throw new IOException("Truncated index file: " + indexPath, e);
+        }
+    }
+
+    /**
+     * Saves this index. The file is written under a temporary name and then renamed, so the readers never see a
+     * partial index.
+     *
+     * @param indexPath the path of the index file
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(final Path indexPath) throws IOException {
+
+        Path temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryPath)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(interval);
+            out.writeLong(rowCount);
+            out.writeLong(dataSize);
+            out.writeLong(lastModified);
+            out.writeInt(layoutHash);
+            out.writeInt(offsets.length);
+            long previous = 0;
+            for (long offset : offsets) {
+                writeVarLong(out, offset - previous);
+                previous = offset;
+            }
+        }
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed offset in the index file");
+    }
+
+    /**
+     * Checks whether this index describes the current content of a file read with a configuration.
+     *
+     * @param configuration the CSV configuration
+     * @param dataPath      the path of the data file
+     * @return <code>false</code> if the file has changed since the index was built or the configuration locates
+     *         the records in a different way
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean isCurrent(final CSVConfiguration configuration, final Path dataPath) throws IOException {
+        return Files.size(dataPath) == dataSize
+                && Files.getLastModifiedTime(dataPath).toMillis() == lastModified
+                && layoutHash(configuration) == layoutHash;
+    }
+
+    /**
+     * Returns the number of rows of the file.
+     *
+     * @return the number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of rows between the entries of this index.
+     *
+     * @return the interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the offset where the scan must start to reach a row, reading fewer than {@link #getInterval()} rows.
+     *
+     * @param row the index of the row, between zero and the number of rows
+     * @return the offset of the entry preceding the row
+     */
+    long getOffset(final long row) {
+        int entry = (int) (row / interval);
+        return entry < offsets.length ? offsets[entry] : dataSize;
+    }
+
+    /**
+     * Splits the rows into contiguous ranges of similar size whose bounds are entries of this index, so each range
+     * can be read by a different {@link CSVReader} after a seek that doesn't read any row.
+     *
+     * @param parts the maximum number of ranges
+     * @return the bounds of the ranges: range <i>i</i> goes from row {@code bounds[i]} (inclusive) to row
+     *         {@code bounds[i + 1]} (exclusive)
+     */
+    public long[] splitRows(final int parts) {
+
+        if (parts <= 0) {
+            throw new IllegalArgumentException("The number of parts must be greater than zero: " + parts);
+        }
+
+        int count = Math.max(1, Math.min(parts, offsets.length));
+        long[] bounds = new long[count + 1];
+        for (int i = 1; i < count; i++) {
+            bounds[i] = (long) offsets.length * i / count * interval;
+        }
+        bounds[count] = rowCount;
+        return bounds;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A {@link CSVMetricsListener} that accumulates the events in striped counters, so it can be shared by all the readers
+ * and writers of an application without adding contention. The values can be read with the getters or published as
+ * an MBean with {@link #registerMBean(String)}.
+ *
+ * <pre>
+ * CSVMetrics metrics = new CSVMetrics();
+ * metrics.registerMBean("exports");
+ * CSVConfiguration configuration = CSVConfiguration.custom() //
+ *         .withMetricsListener(metrics) //
+ *         .build();
+ * </pre>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public class CSVMetrics implements CSVMetricsListener, CSVMetricsMBean {
+
+    private static final String DOMAIN = "com.dattack.formats.csv";
+
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder commentLines = new LongAdder();
+    private final LongAdder blankLines = new LongAdder();
+    private final LongAdder readBlockedNanos = new LongAdder();
+    private final TimeHistogram parseTimes = new TimeHistogram();
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder quotedFields = new LongAdder();
+    private final LongAdder escapedFields = new LongAdder();
+    private final LongAdder writeBlockedNanos = new LongAdder();
+    private final TimeHistogram encodeTimes = new TimeHistogram();
+
+    /**
+     * Registers these metrics in the platform MBean server.
+     *
+     * @param name the value of the {@code name} key of the object name, which must be unique in the application
+     * @return the object name used to register the MBean
+     * @throws JMException if the name is invalid or already registered
+     */
+    public ObjectName registerMBean(final String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=CSVMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void rowRead(final long parseNanos) {
+        rowsRead.increment();
+        parseTimes.record(parseNanos);
+    }
+
+    @Override
+    public void linesSkipped(final int comments, final int blanks) {
+        commentLines.add(comments);
+        blankLines.add(blanks);
+    }
+
+    @Override
+    public void bytesRead(final long bytes, final long blockedNanos) {
+        bytesRead.add(bytes);
+        readBlockedNanos.add(blockedNanos);
+    }
+
+    @Override
+    public void rowWritten(final long encodeNanos, final int quoted, final int escaped) {
+        rowsWritten.increment();
+        quotedFields.add(quoted);
+        escapedFields.add(escaped);
+        encodeTimes.record(encodeNanos);
+    }
+
+    @Override
+    public void bytesWritten(final long bytes, final long blockedNanos) {
+        bytesWritten.add(bytes);
+        writeBlockedNanos.add(blockedNanos);
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getCommentLinesSkipped() {
+        return commentLines.sum();
+    }
+
+    @Override
+    public long getBlankLinesSkipped() {
+        return blankLines.sum();
+    }
+
+    @Override
+    public long getReadBlockedNanos() {
+        return readBlockedNanos.sum();
+    }
+
+    @Override
+    public double getMeanParseNanos() {
+        return parseTimes.getMean();
+    }
+
+    @Override
+    public long getParseNanos50thPercentile() {
+        return parseTimes.getPercentile(50);
+    }
+
+    @Override
+    public long getParseNanos99thPercentile() {
+        return parseTimes.getPercentile(99);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the parse times.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound in nanoseconds, or zero if no row has been read
+     */
+    public long getParseNanosPercentile(final double percentile) {
+        return parseTimes.getPercentile(percentile);
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getQuotedFields() {
+        return quotedFields.sum();
+    }
+
+    @Override
+    public long getEscapedFields() {
+        return escapedFields.sum();
+    }
+
+    @Override
+    public long getWriteBlockedNanos() {
+        return writeBlockedNanos.sum();
+    }
+
+    @Override
+    public double getMeanEncodeNanos() {
+        return encodeTimes.getMean();
+    }
+
+    @Override
+    public long getEncodeNanos50thPercentile() {
+        return encodeTimes.getPercentile(50);
+    }
+
+    @Override
+    public long getEncodeNanos99thPercentile() {
+        return encodeTimes.getPercentile(99);
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the encode times.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound in nanoseconds, or zero if no row has been written
+     */
+    public long getEncodeNanosPercentile(final double percentile) {
+        return encodeTimes.getPercentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        rowsRead.reset();
+        bytesRead.reset();
+        commentLines.reset();
+        blankLines.reset();
+        readBlockedNanos.reset();
+        parseTimes.reset();
+        rowsWritten.reset();
+        bytesWritten.reset();
+        quotedFields.reset();
+        escapedFields.reset();
+        writeBlockedNanos.reset();
+        encodeTimes.reset();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * Receives the events of the readers and writers whose configuration contains this listener (see
+ * {@link CSVConfiguration.CsvConfigurationBuilder#withMetricsListener(CSVMetricsListener)}). The methods are invoked
+ * by the thread that reads or writes the data, so they must be fast and thread-safe when the configuration is shared;
+ * {@link CSVMetrics} is an implementation that only updates striped counters.
+ *
+ * <p>When no listener is configured, no event is created and no time is measured.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public interface CSVMetricsListener {
+
+    /**
+     * Invoked each time a row is read.
+     *
+     * @param parseNanos the time spent locating and splitting the row, not including the time waiting for input
+     */
+    default void rowRead(final long parseNanos) {
+        // ignored
+    }
+
+    /**
+     * Invoked when comment or blank lines have been skipped before a row or at the end of the data.
+     *
+     * @param commentLines the number of comment lines
+     * @param blankLines   the number of lines containing only whitespaces
+     */
+    default void linesSkipped(final int commentLines, final int blankLines) {
+        // ignored
+    }
+
+    /**
+     * Invoked each time data is read from the source. Files mapped into memory report the bytes of each row, with
+     * no blocked time.
+     *
+     * @param bytes        the number of bytes read
+     * @param blockedNanos the time blocked reading them
+     */
+    default void bytesRead(final long bytes, final long blockedNanos) {
+        // ignored
+    }
+
+    /**
+     * Invoked each time a row is ended by a writer.
+     *
+     * @param encodeNanos   the time elapsed since the first value of the row was appended, which includes the time
+     *                      spent by the caller between the values
+     * @param quotedFields  the number of values of the row enclosed in quote characters
+     * @param escapedFields the number of values of the row containing escaped characters
+     */
+    default void rowWritten(final long encodeNanos, final int quotedFields, final int escapedFields) {
+        // ignored
+    }
+
+    /**
+     * Invoked each time data is written to the destination. When the destination is a {@link java.io.Writer}, the
+     * count is the number of characters.
+     *
+     * @param bytes        the number of bytes written
+     * @param blockedNanos the time blocked writing them
+     */
+    default void bytesWritten(final long bytes, final long blockedNanos) {
+        // ignored
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * The management interface of {@link CSVMetrics}. The times are in nanoseconds and the percentiles are approximated
+ * by the upper bound of a power of two.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public interface CSVMetricsMBean {
+
+    long getRowsRead();
+
+    long getBytesRead();
+
+    long getCommentLinesSkipped();
+
+    long getBlankLinesSkipped();
+
+    long getReadBlockedNanos();
+
+    double getMeanParseNanos();
+
+    long getParseNanos50thPercentile();
+
+    long getParseNanos99thPercentile();
+
+    long getRowsWritten();
+
+    long getBytesWritten();
+
+    long getQuotedFields();
+
+    long getEscapedFields();
+
+    long getWriteBlockedNanos();
+
+    double getMeanEncodeNanos();
+
+    long getEncodeNanos50thPercentile();
+
+    long getEncodeNanos99thPercentile();
+
+    /**
+     * Sets all the counters and histograms to zero.
+     */
+    void reset();
+}
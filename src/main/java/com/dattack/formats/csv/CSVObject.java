@@ -15,6 +15,11 @@
  */
 package com.dattack.formats.csv;
 
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
 /**
  * Represents the data row of a CSV file. It also provides methods to access the different columns of data it contains.
  *
@@ -22,12 +27,13 @@ package com.dattack.formats.csv;
  * @since 0.1
  */
 @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
-public class CSVObject {
+public abstract class CSVObject {
 
-    private final String[] data;
+    private final CSVConfiguration configuration;
 
-    CSVObject(final String separator, final String text) {
-        this.data = text.split(separator);
+    CSVObject(final CSVConfiguration configuration) {
+        // package-private: only the readers of this package create instances
+        this.configuration = configuration;
     }
 
     /**
@@ -35,9 +41,7 @@ public class CSVObject {
      *
      * @return the number of elements in this object.
      */
-    public int getSize() {
-        return data.length;
-    }
+    public abstract int getSize();
 
     /**
      * Returns the element at the specified position in this object.
@@ -46,7 +50,167 @@ public class CSVObject {
      * @return the element at the specified position in this object
      * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
      */
-    public String get(final int index) throws IndexOutOfBoundsException {
-        return data[index];
+    public abstract String get(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Binds a reusable view to the element at the specified position in this object. Unlike {@link #get(int)}, this
+     * method doesn't create a new string for the element when the content of the row is available as characters or
+     * as ASCII bytes.
+     *
+     * @param index index of the element to access
+     * @param field the view to bind
+     * @return the view received as parameter
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     */
+    public abstract CSVField getField(int index, CSVField field) throws IndexOutOfBoundsException;
+
+    /**
+     * Returns the element at the specified position in this object as a {@code CharSequence}.
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this object
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     */
+    public CharSequence getCharSequence(final int index) throws IndexOutOfBoundsException {
+        return getField(index, new CSVField());
+    }
+
+    private CSVField getNotNullField(final int index) {
+        CSVField field = getField(index, new CSVField());
+        return field.contentEquals(configuration.getNullStr()) ? null : field;
+    }
+
+    /**
+     * Checks whether the element at the specified position is the null value of the configuration (see
+     * {@link CSVConfiguration#getNullStr()}).
+     *
+     * @param index index of the element to check
+     * @return <code>true</code> if the element represents a null value
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     */
+    public boolean isNull(final int index) throws IndexOutOfBoundsException {
+        return getNotNullField(index) == null;
+    }
+
+    /**
+     * Returns the element at the specified position in this object as an {@code int}.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>0</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws NumberFormatException     if the element doesn't contain a parsable integer
+     */
+    public int getInt(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? 0 : FieldParser.parseInt(field);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code long}.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>0</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws NumberFormatException     if the element doesn't contain a parsable long
+     */
+    public long getLong(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? 0 : FieldParser.parseLong(field);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code double}.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>0</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws NumberFormatException     if the element doesn't contain a parsable double
+     */
+    public double getDouble(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? 0 : FieldParser.parseDouble(field);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code BigDecimal}.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>null</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws NumberFormatException     if the element doesn't contain a parsable decimal number
+     */
+    public BigDecimal getBigDecimal(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? null : FieldParser.parseBigDecimal(field);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code boolean}. The element must contain
+     * the TRUE or FALSE value of the configuration.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>false</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws IllegalArgumentException  if the element doesn't contain a boolean value
+     */
+    public boolean getBoolean(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field != null && FieldParser.parseBoolean(field, configuration);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code java.util.Date}, using the date
+     * format of the configuration.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>null</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws IllegalArgumentException  if the element doesn't contain a parsable date
+     */
+    public Date getDate(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? null : FieldParser.parseDate(field, configuration);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code java.sql.Date}, using the SQL date
+     * format of the configuration.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>null</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws IllegalArgumentException  if the element doesn't contain a parsable date
+     */
+    public java.sql.Date getSqlDate(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? null : FieldParser.parseSqlDate(field, configuration);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code java.sql.Time}, using the time
+     * format of the configuration.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>null</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws IllegalArgumentException  if the element doesn't contain a parsable time
+     */
+    public Time getTime(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? null : FieldParser.parseTime(field, configuration);
+    }
+
+    /**
+     * Returns the element at the specified position in this object as a {@code java.sql.Timestamp}, using the
+     * timestamp format of the configuration.
+     *
+     * @param index index of the element to return
+     * @return the value of the element or <code>null</code> if it is null
+     * @throws IndexOutOfBoundsException if the index is out of range {@code (index < 0 || index >= size())}.
+     * @throws IllegalArgumentException  if the element doesn't contain a parsable timestamp
+     */
+    public Timestamp getTimestamp(final int index) throws IndexOutOfBoundsException {
+        CSVField field = getNotNullField(index);
+        return field == null ? null : FieldParser.parseTimestamp(field, configuration);
     }
 }
@@ -15,50 +15,234 @@
  */
 package com.dattack.formats.csv;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Convenience class for reading CSV files using a provided CSVConfiguration.
  *
+ * <p>The data can be read from a file, an {@link InputStream} or a {@link ReadableByteChannel}. The files whose
+ * name ends with {@code .gz} are decompressed while they are read, using several threads when they have been written
+ * by a {@link ParallelGzipOutputStream}. The charset and the size of the read buffer are set by the configuration
+ * (see {@link CSVConfiguration#CHARSET_PROPERTY_NAME} and {@link CSVConfiguration#BUFFER_SIZE_PROPERTY_NAME}).</p>
+ *
+ * <p>A reader of a file constructed with a {@link CSVIndex} can move to any row with {@link #seekToRow(long)}.</p>
+ *
  * @author cvarela
  * @since 0.1
  */
 @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
 public class CSVReader implements Closeable {
 
+    private static final String GZIP_EXTENSION = ".gz";
+
     private final CSVConfiguration configuration;
-    private final File dataFile;
-    private BufferedReader bufferedReader;
+    private final Path dataPath;
+    private final ReadableByteChannel dataChannel;
+    private final CSVIndex index;
+    private RecordReader recordReader;
+    private FileChannel streamChannel;
 
     public CSVReader(final CSVConfiguration configuration, final File dataFile) {
-        this.configuration = configuration;
-        this.dataFile = dataFile;
+        this(configuration, dataFile.toPath());
+    }
+
+    /**
+     * Constructs a reader for a file. The file is decompressed while it is read when its name ends with
+     * {@code .gz}.
+     *
+     * @param configuration the CSV configuration
+     * @param dataPath      the path of the file
+     * @since 0.3
+     */
+    public CSVReader(final CSVConfiguration configuration, final Path dataPath) {
+        this(configuration, dataPath, null);
+    }
+
+    /**
+     * Constructs a reader for a file that can move to any row using an index of the file.
+     *
+     * @param configuration the CSV configuration
+     * @param dataPath      the path of the file
+     * @param index         the index of the file, built with an equivalent configuration
+     * @throws IllegalArgumentException if the file can't be read with an index (see {@link CSVIndex})
+     * @since 0.3
+     */
+    public CSVReader(final CSVConfiguration configuration, final Path dataPath, final CSVIndex index) {
+        this.configuration = Objects.requireNonNull(configuration);
+        this.dataPath = Objects.requireNonNull(dataPath);
+        this.dataChannel = null;
+        this.index = index;
+        if (index != null) {
+            CSVIndex.checkIndexable(configuration, dataPath);
+        }
+    }
+
+    /**
+     * Constructs a reader for a stream. The stream is closed when this reader is closed. Compressed streams must be
+     * wrapped by the caller, for example with a {@link ParallelGzipInputStream}.
+     *
+     * @param configuration the CSV configuration
+     * @param inputStream   the stream to read
+     * @since 0.3
+     */
+    public CSVReader(final CSVConfiguration configuration, final InputStream inputStream) {
+        this(configuration, Channels.newChannel(Objects.requireNonNull(inputStream)));
+    }
+
+    /**
+     * Constructs a reader for a channel. The channel is closed when this reader is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param channel       the channel to read
+     * @since 0.3
+     */
+    public CSVReader(final CSVConfiguration configuration, final ReadableByteChannel channel) {
+        this.configuration = Objects.requireNonNull(configuration);
+        this.dataPath = null;
+        this.dataChannel = Objects.requireNonNull(channel);
+        this.index = null;
     }
 
     @Override
     public void close() throws IOException {
-        if (bufferedReader != null) {
-            bufferedReader.close();
+        if (recordReader != null) {
+            recordReader.close();
+        } else if (dataChannel != null) {
+            dataChannel.close();
+        }
+        if (streamChannel != null) {
+            streamChannel.close();
         }
     }
 
-    private BufferedReader getReader() throws IOException {
+    /**
+     * Checks whether the data is an uncompressed file, which can be mapped into memory and split.
+     */
+    private boolean isPlainFile() {
+        return dataPath != null
+                && !dataPath.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+    }
 
-        if (bufferedReader == null) {
-            bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(dataFile),
-                    StandardCharsets.UTF_8));
+    private RecordReader getReader() throws IOException {
+
+        if (recordReader == null) {
+            if (isPlainFile() && configuration.isMemoryMapped() && CSVByteTokenizer.isSupported(configuration)) {
+                recordReader = new MappedRecordReader(configuration, dataPath, configuration.getCharset());
+            } else {
+                recordReader = new CharRecordReader(configuration, openReader(), configuration.getBufferSize());
+            }
         }
-        return bufferedReader;
+        return recordReader;
     }
 
-    private boolean isComment(final String line) {
-        return line.trim().startsWith(Character.toString(configuration.getCommentChar()));
+    private Reader openReader() throws IOException {
+
+        int bufferSize = configuration.getBufferSize();
+        ReadableByteChannel channel = dataChannel;
+        if (channel == null) {
+            if (isPlainFile()) {
+                channel = FileChannel.open(dataPath, StandardOpenOption.READ);
+            } else {
+                channel = Channels.newChannel(new ParallelGzipInputStream(Files.newInputStream(dataPath)));
+            }
+        }
+
+        CSVMetricsListener listener = configuration.getMetricsListener();
+        if (listener != null) {
+            channel = MeteredChannel.reading(channel, listener);
+        }
+
+        // same behaviour as InputStreamReader: malformed input is replaced, not reported
+        return Channels.newReader(channel, configuration.getCharset().newDecoder() //
+                .onMalformedInput(CodingErrorAction.REPLACE) //
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), bufferSize);
+    }
+
+    private CSVIndex requireIndex() {
+        if (index == null) {
+            throw new IllegalStateException("The reader has no index");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of rows of the file, as recorded by the index of this reader. The rows discarded by the
+     * filter of the configuration are counted too.
+     *
+     * @return the number of rows
+     * @throws IllegalStateException if this reader has no index
+     * @since 0.3
+     */
+    public long rowCount() {
+        return requireIndex().getRowCount();
+    }
+
+    /**
+     * Moves this reader so the next object read is the row with the given number, starting at zero. The reader
+     * starts scanning at the closest entry of the index and skips fewer than {@link CSVIndex#getInterval()} rows
+     * without creating objects for them. The rows are numbered as in {@link CSVIndex}; when the configuration has a
+     * filter, the next object is the first row matching it at or after the given one.
+     *
+     * @param row the number of the row, or the number of rows to move to the end of the file
+     * @throws IOException               if an I/O error occurs or the file has changed since the index was built
+     * @throws IllegalStateException     if this reader has no index
+     * @throws IndexOutOfBoundsException if the row is negative or greater than the number of rows
+     * @since 0.3
+     */
+    public synchronized void seekToRow(final long row) throws IOException {
+
+        CSVIndex currentIndex = requireIndex();
+        if (row < 0 || row > currentIndex.getRowCount()) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", rows: " + currentIndex.getRowCount());
+        }
+        if (!currentIndex.isCurrent(configuration, dataPath)) {
+            throw new IOException("The index doesn't match the current content of " + dataPath);
+        }
+
+        ColumnProjection projection = configuration.getProjection();
+        if (projection != null && !projection.isResolved()) {
+            try (MappedRecordReader header = new MappedRecordReader(configuration, dataPath,
+                    configuration.getCharset(), 0, projection)) {
+                projection = header.readHeader();
+            }
+        }
+
+        MappedRecordReader reader = new MappedRecordReader(configuration, dataPath, configuration.getCharset(),
+                currentIndex.getOffset(row), projection);
+        try {
+            for (long i = row % currentIndex.getInterval(); i > 0; i--) {
+                reader.skipRecord();
+            }
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+
+        if (recordReader != null) {
+            recordReader.close();
+        }
+        recordReader = reader;
     }
 
     /**
@@ -68,18 +252,129 @@ public class CSVReader implements Closeable {
      * @throws IOException if an I/O error occurs
      */
     public synchronized CSVObject next() throws IOException {
+        return getReader().next();
+    }
 
-        String line = "";
-        CSVObject object = null;
-        while (object == null && (line = getReader().readLine()) != null) {
+    /**
+     * Visits the remaining objects of this reader. The same {@link CSVObject} instance is passed to the visitor for
+     * all the objects and no object is created per row, so this is the cheapest way to process rows that don't need
+     * to be kept.
+     *
+     * @param visitor the visitor, see {@link CSVRowVisitor} for the lifetime of the visited rows
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void forEach(final CSVRowVisitor visitor) throws IOException {
+        getReader().forEach(visitor);
+    }
 
-            line = line.trim();
-            if (line.isEmpty() || isComment(line)) {
-                continue;
-            }
-            object = new CSVObject(configuration.getSeparator(), line);
+    /**
+     * Reads the next objects into the given array, starting at index zero. All the objects are read while holding
+     * the lock of this reader only once, so this method is cheaper than calling {@link #next()} for each object.
+     *
+     * @param buffer the array to fill, which can be reused between calls
+     * @return the number of objects read, which is less than the length of the array only when the end of the data
+     *         has been reached
+     * @throws IOException if an I/O error occurs
+     */
+    public int readInto(final CSVObject[] buffer) throws IOException {
+        return readInto(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Reads up to {@code length} objects into the given array, starting at index {@code offset}.
+     *
+     * @param buffer the array to fill, which can be reused between calls
+     * @param offset the index of the first element to fill
+     * @param length the maximum number of objects to read
+     * @return the number of objects read, which is less than {@code length} only when the end of the data has been
+     *         reached
+     * @throws IOException if an I/O error occurs
+     * @see #readInto(CSVObject[])
+     */
+    public synchronized int readInto(final CSVObject[] buffer, final int offset, final int length)
+            throws IOException {
+
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", array length: "
+                    + buffer.length);
         }
 
-        return object;
+        RecordReader reader = getReader();
+        int count = 0;
+        CSVObject csvObject;
+        while (count < length && (csvObject = reader.next()) != null) {
+            buffer[offset + count++] = csvObject;
+        }
+        return count;
+    }
+
+    /**
+     * Reads up to {@code max} objects while holding the lock of this reader only once.
+     *
+     * @param max the maximum number of objects to read
+     * @return the objects read, an empty list when the end of the data has been reached
+     * @throws IOException if an I/O error occurs
+     * @see #readInto(CSVObject[])
+     */
+    public synchronized List<CSVObject> readBatch(final int max) throws IOException {
+
+        if (max < 0) {
+            throw new IllegalArgumentException("The maximum number of objects can't be negative: " + max);
+        }
+
+        RecordReader reader = getReader();
+        List<CSVObject> batch = new ArrayList<>(Math.min(max, 1024));
+        CSVObject csvObject;
+        while (batch.size() < max && (csvObject = reader.next()) != null) {
+            batch.add(csvObject);
+        }
+        return batch;
+    }
+
+    /**
+     * Returns a sequential {@code Stream} with the objects of this reader. Closing the stream closes this reader.
+     *
+     * <p>When the reader hasn't been used yet, the data is an uncompressed file, the configuration doesn't allow
+     * quoted line breaks and the special characters are ASCII characters, the stream is backed by a
+     * {@link Spliterator} that splits the file at line boundaries, so a parallel stream parses the different parts
+     * of the file in parallel. Otherwise, the stream reads the objects one by one using {@link #next()}.</p>
+     *
+     * @return the stream of objects
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized Stream<CSVObject> stream() throws IOException {
+
+        Spliterator<CSVObject> spliterator;
+        if (recordReader == null && streamChannel == null && isPlainFile() && !configuration.isMultiline()
+                && CSVByteTokenizer.isSupported(configuration)) {
+            streamChannel = FileChannel.open(dataPath, StandardOpenOption.READ);
+            spliterator = CSVSpliterator.of(configuration, streamChannel, configuration.getCharset());
+        } else {
+            spliterator = new Spliterators.AbstractSpliterator<CSVObject>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+
+                @Override
+                public boolean tryAdvance(final Consumer<? super CSVObject> action) {
+                    try {
+                        CSVObject csvObject = next();
+                        if (csvObject == null) {
+                            return false;
+                        }
+                        action.accept(csvObject);
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 }
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A condition on the fields of a row, evaluated by the readers before the row is returned (see
+ * {@link CSVConfiguration.CsvConfigurationBuilder#withFilter(CSVRowFilter)}). The conditions are evaluated on a
+ * reusable {@link CSVField} view over the characters of the record, or over its bytes when the file is mapped into
+ * memory, so the rows that don't match are discarded without creating a {@link CSVObject} or any string. Only the
+ * fields containing escape sequences or non-ASCII bytes in a mapped file are decoded to be evaluated.
+ *
+ * <pre>
+ * CSVRowFilter filter = CSVRowFilter.equalTo(0, "tenant-42") //
+ *         .and(CSVRowFilter.between(3, 20200101L, 20200131L));
+ * </pre>
+ *
+ * <p>The columns are the positions in the rows returned by the reader, so they are positions in the projection when
+ * the columns are selected (see {@link CSVConfiguration.CsvConfigurationBuilder#withColumns(int...)}). A row that
+ * doesn't have the column doesn't match. Instances are immutable and can be shared between threads.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public abstract class CSVRowFilter {
+
+    CSVRowFilter() {
+        // package-private: the conditions are created with the static methods
+    }
+
+    /**
+     * Evaluates this condition.
+     *
+     * @param row   the row, only valid during the call
+     * @param field a view that can be bound to the fields of the row
+     * @return <code>true</code> if the row matches
+     */
+    abstract boolean test(CSVObject row, CSVField field);
+
+    private static void checkColumn(final int column) {
+        if (column < 0) {
+            throw new IllegalArgumentException("The column index can't be negative: " + column);
+        }
+    }
+
+    /**
+     * Binds the view to a field of the row.
+     *
+     * @return the view, or <code>null</code> if the row doesn't have the column
+     */
+    static CSVField bind(final CSVObject row, final int column, final CSVField field) {
+        return column < row.getSize() ? row.getField(column, field) : null;
+    }
+
+    /**
+     * Matches the rows whose field is equal to a value.
+     *
+     * @param column the index of the column
+     * @param value  the value
+     * @return the condition
+     */
+    public static CSVRowFilter equalTo(final int column, final String value) {
+        checkColumn(column);
+        Objects.requireNonNull(value);
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                CSVField content = bind(row, column, field);
+                return content != null && content.contentEquals(value);
+            }
+        };
+    }
+
+    /**
+     * Matches the rows whose field starts with a prefix.
+     *
+     * @param column the index of the column
+     * @param prefix the prefix
+     * @return the condition
+     */
+    public static CSVRowFilter startsWith(final int column, final String prefix) {
+        checkColumn(column);
+        Objects.requireNonNull(prefix);
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                CSVField content = bind(row, column, field);
+                if (content == null || content.length() < prefix.length()) {
+                    return false;
+                }
+                for (int i = 0; i < prefix.length(); i++) {
+                    if (content.charAt(i) != prefix.charAt(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Matches the rows whose field is equal to one of the given values. The values are looked up in a hash table,
+     * so large sets are as cheap as small ones.
+     *
+     * @param column the index of the column
+     * @param values the values
+     * @return the condition
+     */
+    public static CSVRowFilter in(final int column, final String... values) {
+        checkColumn(column);
+        return new ValueSet(column, values);
+    }
+
+    /**
+     * Matches the rows whose field contains an integer number between two values, both inclusive. The null values
+     * and the fields that aren't integer numbers don't match.
+     *
+     * @param column the index of the column
+     * @param min    the minimum value
+     * @param max    the maximum value
+     * @return the condition
+     */
+    public static CSVRowFilter between(final int column, final long min, final long max) {
+        checkColumn(column);
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                CSVField content = bind(row, column, field);
+                if (content == null || content.length() == 0) {
+                    return false;
+                }
+                try {
+                    long value = FieldParser.parseLong(content);
+                    return value >= min && value <= max;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * Matches the rows whose field contains a number between two values, both inclusive. The null values and the
+     * fields that aren't numbers don't match.
+     *
+     * @param column the index of the column
+     * @param min    the minimum value
+     * @param max    the maximum value
+     * @return the condition
+     */
+    public static CSVRowFilter between(final int column, final double min, final double max) {
+        checkColumn(column);
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                CSVField content = bind(row, column, field);
+                if (content == null || content.length() == 0) {
+                    return false;
+                }
+                try {
+                    double value = FieldParser.parseDouble(content);
+                    return value >= min && value <= max;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    /**
+     * Matches the rows whose field satisfies a predicate. The predicate receives a view that is only valid during
+     * the call.
+     *
+     * @param column    the index of the column
+     * @param predicate the predicate, which must be thread-safe when the configuration is shared
+     * @return the condition
+     */
+    public static CSVRowFilter matches(final int column, final Predicate<? super CSVField> predicate) {
+        checkColumn(column);
+        Objects.requireNonNull(predicate);
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                CSVField content = bind(row, column, field);
+                return content != null && predicate.test(content);
+            }
+        };
+    }
+
+    /**
+     * Returns a condition matching the rows that match both this condition and another one. The other condition is
+     * not evaluated when this one doesn't match.
+     *
+     * @param other the other condition
+     * @return the condition
+     */
+    public CSVRowFilter and(final CSVRowFilter other) {
+        Objects.requireNonNull(other);
+        final CSVRowFilter first = this;
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                return first.test(row, field) && other.test(row, field);
+            }
+        };
+    }
+
+    /**
+     * Returns a condition matching the rows that match this condition or another one. The other condition is not
+     * evaluated when this one matches.
+     *
+     * @param other the other condition
+     * @return the condition
+     */
+    public CSVRowFilter or(final CSVRowFilter other) {
+        Objects.requireNonNull(other);
+        final CSVRowFilter first = this;
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                return first.test(row, field) || other.test(row, field);
+            }
+        };
+    }
+
+    /**
+     * Returns a condition matching the rows that don't match this condition.
+     *
+     * @return the condition
+     */
+    public CSVRowFilter negate() {
+        final CSVRowFilter condition = this;
+        return new CSVRowFilter() {
+            @Override
+            boolean test(final CSVObject row, final CSVField field) {
+                return !condition.test(row, field);
+            }
+        };
+    }
+
+    /**
+     * A set of values stored in an open hash table keyed by the same hash as {@link String#hashCode()}, which can be
+     * computed from the view of a field.
+     */
+    private static final class ValueSet extends CSVRowFilter {
+
+        private final int column;
+        private final String[] table;
+        private final int mask;
+
+        ValueSet(final int column, final String... values) {
+            this.column = column;
+            int capacity = Integer.highestOneBit(Math.max(values.length, 1) * 2) * 2;
+            this.table = new String[capacity];
+            this.mask = capacity - 1;
+            for (String value : values) {
+                int index = Objects.requireNonNull(value).hashCode() & mask;
+                while (table[index] != null && !table[index].equals(value)) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+
+        private static int hash(final CharSequence value) {
+            int hash = 0;
+            for (int i = 0; i < value.length(); i++) {
+                hash = 31 * hash + value.charAt(i);
+            }
+            return hash;
+        }
+
+        @Override
+        boolean test(final CSVObject row, final CSVField field) {
+
+            CSVField content = bind(row, column, field);
+            if (content == null) {
+                return false;
+            }
+            int index = hash(content) & mask;
+            String value;
+            while ((value = table[index]) != null) {
+                if (content.contentEquals(value)) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+    }
+}
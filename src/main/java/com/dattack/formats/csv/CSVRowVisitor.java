@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * A callback that receives the rows read by {@link CSVReader#forEach(CSVRowVisitor)}.
+ *
+ * <p>The same {@link CSVObject} instance is passed to every call and it is only valid during the call: its content
+ * changes when the next row is read. Use {@link CSVObject#get(int)} to keep the value of a field, or
+ * {@link CSVObject#getField(int, CSVField)} to inspect it without creating a string.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@FunctionalInterface
+public interface CSVRowVisitor {
+
+    /**
+     * Visits a row.
+     *
+     * @param row the current row, only valid until this method returns
+     */
+    void visit(CSVObject row);
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over the records of a region of a file. The region is split in two halves at the
+ * beginning of a line, so the configuration must not allow quoted line breaks (see
+ * {@link CSVConfiguration#isMultiline()}).
+ *
+ * <p>A spliterator can only be split before its traversal begins. The number of records is estimated from the
+ * length of the region and the average length of the lines found at the beginning of the file.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+final class CSVSpliterator implements Spliterator<CSVObject> {
+
+    private static final long MIN_SPLIT_SIZE = 64 * 1024;
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    private static final int MIN_WINDOW_SIZE = 8 * 1024;
+
+    private final CSVConfiguration configuration;
+    private final FileChannel channel;
+    private final Charset charset;
+    private final double bytesPerRecord;
+    private final ColumnProjection projection;
+    private final long end;
+    private long start;
+    private MappedRecordReader reader;
+
+    private CSVSpliterator(final CSVConfiguration configuration, final FileChannel channel, final Charset charset,
+                           final double bytesPerRecord, final ColumnProjection projection, final long start,
+                           final long end) {
+        this.configuration = configuration;
+        this.channel = channel;
+        this.charset = charset;
+        this.bytesPerRecord = bytesPerRecord;
+        this.projection = projection;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a spliterator over all the records of a file.
+     *
+     * @param configuration the CSV configuration
+     * @param channel       the channel of the file, which is not closed by the spliterator
+     * @param charset       the charset of the file
+     * @return the new spliterator
+     * @throws IOException if an I/O error occurs
+     */
+    static CSVSpliterator of(final CSVConfiguration configuration, final FileChannel channel,
+                             final Charset charset) throws IOException {
+
+        ColumnProjection projection = configuration.getProjection();
+        long start = 0;
+        if (projection != null && !projection.isResolved()) {
+            // the header is read once, before splitting the rest of the file
+            try (MappedRecordReader header = new MappedRecordReader(configuration, channel, charset,
+                    MappedRecordReader.DEFAULT_WINDOW_SIZE, 0, Long.MAX_VALUE, projection)) {
+                projection = header.readHeader();
+                start = header.getLastRecordEnd();
+            }
+        }
+        return new CSVSpliterator(configuration, channel, charset, sampleLineLength(channel), projection, start,
+                channel.size());
+    }
+
+    private static double sampleLineLength(final FileChannel channel) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+        int read = Math.max(0, channel.read(buffer, 0));
+        int lines = 0;
+        for (int i = 0; i < read; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines == 0 ? Math.max(1, read) : (double) read / lines;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super CSVObject> action) {
+
+        try {
+            if (reader == null) {
+                reader = new MappedRecordReader(configuration, channel, charset,
+                        Math.min(MappedRecordReader.DEFAULT_WINDOW_SIZE, 2 * (end - start) + MIN_WINDOW_SIZE),
+                        start, end, projection);
+            }
+            CSVObject csvObject = reader.next();
+            if (csvObject == null) {
+                return false;
+            }
+            action.accept(csvObject);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<CSVObject> trySplit() {
+
+        if (reader != null || end - start < 2 * MIN_SPLIT_SIZE) {
+            return null;
+        }
+
+        try {
+            long middle = MappedRecordReader.nextLineStart(channel, start + (end - start) / 2);
+            if (middle >= end) {
+                return null;
+            }
+            CSVSpliterator prefix = new CSVSpliterator(configuration, channel, charset, bytesPerRecord, projection,
+                    start, middle);
+            start = middle;
+            return prefix;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        long from = reader == null ? start : reader.getLastRecordEnd();
+        return (long) Math.ceil(Math.max(0, end - from) / bytesPerRecord);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -43,6 +43,12 @@ public class CSVStringBuilder {
     private boolean emptyLine;
     private final StringBuilder rebuild;
     private final DecimalFormat decimalFormat;
+    private final FieldEscaper escaper;
+    private final CSVMetricsListener listener;
+    // the state of the current row, only updated when there is a listener
+    private long rowStartTime;
+    private int quotedFields;
+    private int escapedFields;
 
     public CSVStringBuilder(final CSVConfiguration configuration) {
         this(configuration, DEFAULT_CAPACITY);
@@ -59,6 +65,8 @@ public class CSVStringBuilder {
         this.rebuild = new StringBuilder(capacity);
         this.emptyLine = true;
         this.isComment = false;
+        this.escaper = configuration.getEscaper();
+        this.listener = configuration.getMetricsListener();
 
         decimalFormat = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
         decimalFormat.setMaximumFractionDigits(Integer.MAX_VALUE);
@@ -75,7 +83,7 @@ public class CSVStringBuilder {
         if (value == null) {
             appendDirectValue(configuration.getNullStr());
         } else {
-            appendDirectValue(configuration.getDateFormat().format(value));
+            appendDirectValue(configuration.getDateFieldFormatter().format(value.getTime()));
         }
         return this;
     }
@@ -90,7 +98,7 @@ public class CSVStringBuilder {
         if (value == null) {
             appendDirectValue(configuration.getNullStr());
         } else {
-            appendDirectValue(configuration.getSqlDateFormat().format(value));
+            appendDirectValue(configuration.getSqlDateFieldFormatter().format(value.getTime()));
         }
         return this;
     }
@@ -105,7 +113,7 @@ public class CSVStringBuilder {
         if (value == null) {
             appendDirectValue(configuration.getNullStr());
         } else {
-            appendDirectValue(configuration.getTimeFormat().format(value));
+            appendDirectValue(configuration.getTimeFieldFormatter().format(value.getTime()));
         }
         return this;
     }
@@ -121,11 +129,60 @@ public class CSVStringBuilder {
         if (value == null) {
             appendDirectValue(configuration.getNullStr());
         } else {
-            appendDirectValue(configuration.getTimestampFormat().format(value));
+            appendDirectValue(configuration.getTimestampFieldFormatter().format(value.getTime()));
         }
         return this;
     }
 
+    /**
+     * Appends a new value.
+     *
+     * @param value the new value to append
+     * @return the instance of CSVStringBuilder
+     */
+    public CSVStringBuilder append(final int value) {
+        return append((long) value);
+    }
+
+    /**
+     * Appends a new value.
+     *
+     * @param value the new value to append
+     * @return the instance of CSVStringBuilder
+     */
+    public CSVStringBuilder append(final long value) {
+        boolean quoted = startValue(false);
+        rebuild.append(value);
+        endValue(quoted);
+        return this;
+    }
+
+    /**
+     * Appends a new value. The value is written with all its significant digits and no exponent.
+     *
+     * @param value the new value to append
+     * @return the instance of CSVStringBuilder
+     */
+    public CSVStringBuilder append(final double value) {
+        boolean quoted = startValue(false);
+        if (!FieldFormatter.appendDouble(rebuild, value)) {
+            rebuild.append(decimalFormat.format(value));
+        }
+        endValue(quoted);
+        return this;
+    }
+
+    /**
+     * Appends a new value. As with the other numbers, the value is converted to a double, so {@code 0.1f} is
+     * written as {@code 0.10000000149011612}.
+     *
+     * @param value the new value to append
+     * @return the instance of CSVStringBuilder
+     */
+    public CSVStringBuilder append(final float value) {
+        return append((double) value);
+    }
+
     /**
      * Appends a new value.
      *
@@ -261,11 +318,18 @@ public class CSVStringBuilder {
         } else if (format == null) {
             appendValue(value, !isComment);
         } else {
-            String escapedValue = escape(value, !isComment);
+            boolean quote = !isComment && escaper.isQuoted(value, true);
+            String escapedValue = escaper.escape(value, quote);
+            if (escapedValue != value) {
+                fieldEscaped();
+            }
             if (isComment) {
-                appendDirectValue(String.format(format, escapedValue));
+                appendFormattedValue(format, escapedValue);
             } else {
-                appendDirectValue(String.format(format, getQuotedString(escapedValue, true)));
+                if (listener != null && quote) {
+                    quotedFields++;
+                }
+                appendFormattedValue(format, getQuotedString(escapedValue, quote));
             }
         }
         return this;
@@ -291,77 +355,126 @@ public class CSVStringBuilder {
         return this;
     }
 
+    /**
+     * Appends a value of any type using the {@code append} method of its class. The numbers without a specific
+     * method are written as {@link BigDecimal} values, and the objects of other classes as strings.
+     *
+     * @param value the new value to append
+     * @return the instance of CSVStringBuilder
+     */
+    CSVStringBuilder appendObject(final Object value) {
+
+        if (value == null || value instanceof String) {
+            return append((String) value);
+        }
+        if (value instanceof Number) {
+            return appendDirectNumber((Number) value, null);
+        }
+        if (value instanceof Boolean) {
+            return append((Boolean) value);
+        }
+        if (value instanceof Timestamp) {
+            return append((Timestamp) value);
+        }
+        if (value instanceof java.sql.Date) {
+            return append((java.sql.Date) value);
+        }
+        if (value instanceof Time) {
+            return append((Time) value);
+        }
+        if (value instanceof Date) {
+            return append((Date) value);
+        }
+        return append(value.toString());
+    }
+
     private CSVStringBuilder appendDirectNumber(final Number value, String format) {
 
         if (Objects.isNull(value)) {
             appendDirectValue(configuration.getNullStr());
         } else {
             if (Objects.isNull(format)) {
-                appendDirectValue(decimalFormat.format(value));
+                if (value instanceof Integer || value instanceof Long) {
+                    append(value.longValue());
+                } else if (value instanceof Double || value instanceof Float) {
+                    append(value.doubleValue());
+                } else {
+                    appendDirectValue(decimalFormat.format(value));
+                }
             } else {
-                appendDirectValue(String.format(format, value));
+                appendFormattedValue(format, value);
             }
         }
         return this;
     }
 
+    private void appendFormattedValue(final String format, final Object value) {
+        int start = rebuild.length();
+        boolean quoted = startValue(false);
+        try {
+            CompiledFormat.of(format).formatTo(rebuild, value);
+        } catch (RuntimeException e) {
+            // invalid format: leave the content unchanged
+            rebuild.setLength(start);
+            throw e;
+        }
+        endValue(quoted);
+    }
+
     private void appendDirectValue(final String escapedValue) {
         appendDirectValue(escapedValue, false);
     }
 
     private void appendDirectValue(final String escapedValue, final boolean quote) {
-
-        if (!emptyLine) {
-            rebuild.append(configuration.getSeparator());
-        }
-
-        rebuild.append(getQuotedString(escapedValue, quote));
-
-        emptyLine = false;
+        boolean quoted = startValue(quote);
+        rebuild.append(escapedValue);
+        endValue(quoted);
     }
 
     private void appendValue(final String value, final boolean quote) {
-        appendDirectValue(escape(value, quote), quote);
+        // the separator doesn't split the values of a comment
+        boolean quoted = startValue(isComment ? quote : escaper.isQuoted(value, quote));
+        if (escaper.escapeTo(value, quoted, rebuild)) {
+            fieldEscaped();
+        }
+        endValue(quoted);
     }
 
-    private String getQuotedString(final String escapedValue, final boolean quote) {
+    private boolean startValue(final boolean quote) {
 
-        String quotedString = escapedValue;
-        if (quote && '\u0000' != configuration.getQuoteChar()) {
-            // NOT NULL char
-            quotedString = configuration.getQuoteChar() + escapedValue + configuration.getQuoteChar();
+        if (!emptyLine) {
+            rebuild.append(configuration.getSeparator());
+        } else if (listener != null && !isComment) {
+            rowStartTime = System.nanoTime();
         }
-        return quotedString;
-    }
-
-    private String escape(final String value, final boolean quote) {
 
-        String escapedValue = value;
-        if (configuration.getEol().contains("\n")) {
-            escapedValue = escapedValue.replaceAll("\n", " ");
+        boolean quoted = escaper.isQuoted(quote);
+        if (quoted) {
+            rebuild.append(configuration.getQuoteChar());
         }
+        return quoted;
+    }
 
-        if (quote && '\u0000' != configuration.getQuoteChar()) {
-            // NOT NULL char
-            escapedValue = escape(escapedValue, configuration.getQuoteChar(), configuration.getEscapeChar());
-        } else {
-            if (configuration.getSeparator().length() == 1) {
-                escapedValue = escape(escapedValue, configuration.getSeparator().charAt(0),
-                        configuration.getEscapeChar());
+    private void endValue(final boolean quoted) {
+
+        if (quoted) {
+            rebuild.append(configuration.getQuoteChar());
+            if (listener != null) {
+                quotedFields++;
             }
         }
 
-        return escapedValue;
+        emptyLine = false;
+        contentAppended(rebuild);
     }
 
-    private String escape(String value, char charToEscape, char escapeChar) {
-        String replacement;
-        if ('\\' == escapeChar) {
-            replacement = "\\\\" + charToEscape;
-        } else {
-            replacement = Character.toString(escapeChar) + charToEscape;
+    private String getQuotedString(final String escapedValue, final boolean quote) {
+
+        String quotedString = escapedValue;
+        if (escaper.isQuoted(quote)) {
+            quotedString = configuration.getQuoteChar() + escapedValue + configuration.getQuoteChar();
         }
-        return value.replaceAll(Character.toString(charToEscape), replacement);
+        return quotedString;
     }
 
     /**
@@ -373,6 +486,8 @@ public class CSVStringBuilder {
         rebuild.setLength(0);
         emptyLine = true;
         isComment = false;
+        quotedFields = 0;
+        escapedFields = 0;
         return this;
     }
 
@@ -430,6 +545,8 @@ public class CSVStringBuilder {
 
         if (useEolAtEnd) {
             eol();
+        } else {
+            contentAppended(rebuild);
         }
 
         return this;
@@ -441,12 +558,84 @@ public class CSVStringBuilder {
      * @return the instance of CSVStringBuilder
      */
     public CSVStringBuilder eol() {
+        if (listener != null && !emptyLine && !isComment) {
+            listener.rowWritten(System.nanoTime() - rowStartTime, quotedFields, escapedFields);
+            quotedFields = 0;
+            escapedFields = 0;
+        }
         rebuild.append(configuration.getEol());
         emptyLine = true;
         isComment = false;
+        contentAppended(rebuild);
         return this;
     }
 
+    /**
+     * Invoked each time new content is appended to the internal buffer. The content is kept in the buffer until
+     * {@link #toString()} is invoked, but subclasses may consume it and remove it from the buffer.
+     *
+     * @param buffer the internal buffer
+     */
+    void contentAppended(final StringBuilder buffer) {
+        // the content is kept in memory
+    }
+
+    StringBuilder getBuffer() {
+        return rebuild;
+    }
+
+    /**
+     * Prepares the buffer to receive the values of a complete row: an open comment is ended and, when the current
+     * line already contains values, the separator is appended.
+     *
+     * @return the internal buffer
+     */
+    StringBuilder startRow() {
+        if (isComment) {
+            eol();
+        }
+        if (!emptyLine) {
+            rebuild.append(configuration.getSeparator());
+        } else if (listener != null) {
+            rowStartTime = System.nanoTime();
+        }
+        return rebuild;
+    }
+
+    /**
+     * Ends a row written directly to the buffer returned by {@link #startRow()}.
+     *
+     * @param quoted the number of values of the row enclosed in quote characters
+     */
+    void endRow(final int quoted) {
+        quotedFields += quoted;
+        emptyLine = false;
+        eol();
+    }
+
+    /**
+     * Checks whether the rows written are reported to a metrics listener.
+     */
+    boolean isInstrumented() {
+        return listener != null;
+    }
+
+    /**
+     * Counts a value of the current row containing escaped characters.
+     */
+    void fieldEscaped() {
+        if (listener != null) {
+            escapedFields++;
+        }
+    }
+
+    /**
+     * Formats a number as {@link #append(BigDecimal)} does.
+     */
+    String formatNumber(final Number value) {
+        return decimalFormat.format(value);
+    }
+
     @Override
     public String toString() {
         return rebuild.toString();
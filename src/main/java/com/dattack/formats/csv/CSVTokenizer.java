@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer that splits a CSV record into fields. The record is scanned once, character by character,
+ * and the field boundaries are stored as pairs of offsets (<i>start</i>, <i>end</i>) into the scanned buffer.
+ * Quoted fields may contain the separator and the escape sequences written by {@link CSVStringBuilder} are removed
+ * in place, so no intermediate strings are created while tokenizing.
+ *
+ * <p>The following rules apply:</p>
+ * <ul>
+ *     <li>a field is quoted only when its first character is the quote character;</li>
+ *     <li>inside a quoted field, the escape character followed by the quote character produces a literal quote
+ *     character, and so does a doubled quote character;</li>
+ *     <li>outside a quoted field, the escape character followed by the first character of the separator produces
+ *     that character;</li>
+ *     <li>any other occurrence of the escape character is kept as is.</li>
+ * </ul>
+ *
+ * <p>This class is not thread-safe: the offsets are overwritten by each call to {@code tokenize}.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+final class CSVTokenizer {
+
+    private static final char NULL_CHAR = '\u0000';
+
+    private static final int DEFAULT_FIELDS = 16;
+
+    private final CSVConfiguration configuration;
+    private final char[] separator;
+    private final char separatorChar;
+    private final char quoteChar;
+    private final char escapeChar;
+    private final boolean multiline;
+
+    private ColumnProjection projection;
+    private int[] offsets;
+    private int size;
+    // the end of the last field unescaped
+    private int fieldEnd;
+
+    CSVTokenizer(final CSVConfiguration configuration) {
+        this.configuration = configuration;
+        this.separator = configuration.getSeparator().toCharArray();
+        if (separator.length == 0) {
+            throw new IllegalArgumentException("The separator can't be empty");
+        }
+        this.separatorChar = separator[0];
+        this.quoteChar = configuration.getQuoteChar();
+        this.escapeChar = configuration.getEscapeChar();
+        this.multiline = configuration.isMultiline();
+        this.offsets = new int[DEFAULT_FIELDS * 2];
+    }
+
+    /**
+     * Restricts the fields returned by the next calls to {@code tokenize} to the columns of a projection.
+     *
+     * @param value the resolved projection, or <code>null</code> to return all the fields
+     */
+    void setProjection(final ColumnProjection value) {
+        this.projection = value;
+    }
+
+    /**
+     * Splits the region {@code [from, to)} of the buffer into fields. The buffer is modified in place to remove the
+     * quote and escape characters.
+     *
+     * @param buffer the buffer containing the record
+     * @param from   the index of the first character of the record
+     * @param to     the index after the last character of the record
+     * @return the number of fields found, or the number of projected columns when a projection is set
+     */
+    int tokenize(final char[] buffer, final int from, final int to) {
+
+        if (projection != null) {
+            return tokenizeProjected(buffer, from, to);
+        }
+
+        size = 0;
+
+        int read = from;
+        while (true) {
+            int start = read;
+            read = unescapeField(buffer, read, to);
+            addField(start, fieldEnd);
+
+            if (read >= to) {
+                return size;
+            }
+            read += separator.length;
+        }
+    }
+
+    /**
+     * Splits a record keeping only the fields of the projected columns, each one at its slot. The other fields are
+     * skipped without being modified and the scan ends after the last projected column.
+     */
+    private int tokenizeProjected(final char[] buffer, final int from, final int to) {
+
+        size = projection.getSize();
+        if (offsets.length < size * 2) {
+            offsets = new int[size * 2];
+        }
+        // the columns missing from the record are empty
+        Arrays.fill(offsets, 0, size * 2, from);
+
+        int read = from;
+        int lastColumn = projection.getLastColumn();
+        for (int column = 0; column <= lastColumn; column++) {
+            int slot = projection.getSlot(column);
+            if (slot < 0) {
+                read = skipField(buffer, read, to);
+            } else {
+                offsets[slot * 2] = read;
+                read = unescapeField(buffer, read, to);
+                offsets[slot * 2 + 1] = fieldEnd;
+            }
+
+            if (read >= to) {
+                break;
+            }
+            read += separator.length;
+        }
+        return size;
+    }
+
+    /**
+     * Removes in place the quote and escape characters of the field starting at {@code from}. The index after the
+     * last character of the unescaped field is stored in {@link #fieldEnd}.
+     *
+     * @return the index of the separator that ends the field or {@code to}
+     */
+    private int unescapeField(final char[] buffer, final int from, final int to) {
+
+        int read = from;
+        int write = read;
+        boolean quoted = quoteChar != NULL_CHAR && read < to && buffer[read] == quoteChar;
+        if (quoted) {
+            read++;
+        }
+
+        while (read < to) {
+            char c = buffer[read];
+            if (quoted) {
+                if (c == quoteChar) {
+                    if (read + 1 < to && buffer[read + 1] == quoteChar) {
+                        // doubled quote
+                        buffer[write++] = c;
+                        read += 2;
+                    } else {
+                        quoted = false;
+                        read++;
+                    }
+                    continue;
+                }
+                if (c == escapeChar && escapeChar != NULL_CHAR && read + 1 < to
+                        && buffer[read + 1] == quoteChar) {
+                    buffer[write++] = quoteChar;
+                    read += 2;
+                    continue;
+                }
+            } else {
+                if (c == separatorChar && isSeparator(buffer, read, to)) {
+                    break;
+                }
+                if (c == escapeChar && escapeChar != NULL_CHAR && read + 1 < to
+                        && buffer[read + 1] == separatorChar) {
+                    buffer[write++] = separatorChar;
+                    read += 2;
+                    continue;
+                }
+            }
+            buffer[write++] = c;
+            read++;
+        }
+
+        fieldEnd = write;
+        return read;
+    }
+
+    /**
+     * Finds the end of the field starting at {@code from}, following the same rules as
+     * {@link #unescapeField(char[], int, int)} but without modifying the buffer.
+     *
+     * @return the index of the separator that ends the field or {@code to}
+     */
+    private int skipField(final char[] buffer, final int from, final int to) {
+
+        int read = from;
+        boolean quoted = quoteChar != NULL_CHAR && read < to && buffer[read] == quoteChar;
+        if (quoted) {
+            read++;
+        }
+
+        while (read < to) {
+            char c = buffer[read];
+            if (quoted) {
+                if (c == quoteChar) {
+                    if (read + 1 < to && buffer[read + 1] == quoteChar) {
+                        read += 2;
+                        continue;
+                    }
+                    quoted = false;
+                } else if (c == escapeChar && escapeChar != NULL_CHAR && read + 1 < to
+                        && buffer[read + 1] == quoteChar) {
+                    read += 2;
+                    continue;
+                }
+            } else if (c == separatorChar && isSeparator(buffer, read, to)) {
+                return read;
+            } else if (c == escapeChar && escapeChar != NULL_CHAR && read + 1 < to
+                    && buffer[read + 1] == separatorChar) {
+                read += 2;
+                continue;
+            }
+            read++;
+        }
+        return read;
+    }
+
+    private static boolean isEol(final char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * Finds the end of the record starting at {@code from}. When the configuration allows quoted line breaks, the
+     * line breaks inside a quoted field don't end the record.
+     *
+     * @param buffer the buffer containing the record
+     * @param from   the index of the first character of the record
+     * @param limit  the index where the available data ends
+     * @param eof    <code>true</code> when no more data exists after <code>limit</code>
+     * @return the index of the line break that ends the record, <code>limit</code> when the record ends at the end
+     *         of the data, or -1 if the record doesn't end before <code>limit</code> and <code>eof</code> is
+     *         <code>false</code>
+     */
+    int findRecordEnd(final char[] buffer, final int from, final int limit, final boolean eof) {
+
+        int index = from;
+        boolean fieldStart = true;
+        boolean quoted = false;
+        while (index < limit) {
+            char c = buffer[index];
+            if (quoted) {
+                if (c == quoteChar) {
+                    if (index + 1 >= limit && !eof) {
+                        return -1;
+                    }
+                    if (index + 1 < limit && buffer[index + 1] == quoteChar) {
+                        index++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == escapeChar && escapeChar != NULL_CHAR && index + 1 < limit
+                        && buffer[index + 1] == quoteChar) {
+                    index++;
+                }
+            } else if (isEol(c)) {
+                return index;
+            } else if (fieldStart && multiline && c == quoteChar && quoteChar != NULL_CHAR) {
+                quoted = true;
+            } else if (c == separatorChar && isSeparator(buffer, index, limit)) {
+                index += separator.length;
+                fieldStart = true;
+                continue;
+            } else if (c == escapeChar && escapeChar != NULL_CHAR && index + 1 < limit
+                    && buffer[index + 1] == separatorChar) {
+                index++;
+            }
+            fieldStart = false;
+            index++;
+        }
+        return eof ? limit : -1;
+    }
+
+    private boolean isSeparator(final char[] buffer, final int index, final int to) {
+        if (separator.length == 1) {
+            return true;
+        }
+        if (index + separator.length > to) {
+            return false;
+        }
+        for (int i = 1; i < separator.length; i++) {
+            if (buffer[index + i] != separator[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addField(final int start, final int end) {
+        if (size * 2 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[size * 2] = start;
+        offsets[size * 2 + 1] = end;
+        size++;
+    }
+
+    /**
+     * Returns the offset of the first character of a field found by the last call to {@code tokenize}.
+     */
+    int getStart(final int index) {
+        return offsets[index * 2];
+    }
+
+    /**
+     * Returns the offset after the last character of a field found by the last call to {@code tokenize}.
+     */
+    int getEnd(final int index) {
+        return offsets[index * 2 + 1];
+    }
+
+    /**
+     * Returns the number of fields found by the last call to {@code tokenize}.
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the configuration of this tokenizer.
+     */
+    CSVConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the offsets found by the last call to {@code tokenize}. The array is reused by the next calls.
+     */
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Creates a new object containing a copy of the characters and offsets found by the last call to
+     * {@code tokenize}. The strings of the fields are not created until they are requested.
+     *
+     * @param buffer the buffer used in the last call to {@code tokenize}
+     * @param from   the index of the first character of the record
+     * @return the new object
+     */
+    CSVObject toObject(final char[] buffer, final int from) {
+        if (projection != null) {
+            return toCompactObject(buffer);
+        }
+        int length = size == 0 ? 0 : getEnd(size - 1) - from;
+        int[] fieldOffsets = new int[size * 2];
+        for (int i = 0; i < fieldOffsets.length; i++) {
+            fieldOffsets[i] = offsets[i] - from;
+        }
+        return new CharArrayCSVObject(configuration, Arrays.copyOfRange(buffer, from, from + length),
+                fieldOffsets, size);
+    }
+
+    /**
+     * Creates a new object containing only the characters of the projected fields, so the skipped fields are not
+     * retained.
+     */
+    private CSVObject toCompactObject(final char[] buffer) {
+
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += getEnd(i) - getStart(i);
+        }
+
+        char[] chars = new char[length];
+        int[] fieldOffsets = new int[size * 2];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            int start = getStart(i);
+            int fieldLength = getEnd(i) - start;
+            System.arraycopy(buffer, start, chars, position, fieldLength);
+            fieldOffsets[i * 2] = position;
+            position += fieldLength;
+            fieldOffsets[i * 2 + 1] = position;
+        }
+        return new CharArrayCSVObject(configuration, chars, fieldOffsets, size);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A {@link CSVStringBuilder} that writes the CSV data to a {@link Writer}, an {@link OutputStream} or a
+ * {@link WritableByteChannel} instead of keeping it in memory. The content is written each time the internal buffer
+ * reaches the flush threshold of the configuration (see {@link CSVConfiguration#FLUSH_THRESHOLD_PROPERTY_NAME}), so
+ * the memory used doesn't depend on the size of the document.
+ *
+ * <p>When the destination is a {@link GatheringByteChannel}, such as a {@link java.nio.channels.FileChannel}, and the
+ * charset is UTF-8, the content is encoded directly into pooled byte buffers and written with a gathering write (see
+ * {@link CSVConfiguration#DIRECT_BUFFERS_PROPERTY_NAME}).</p>
+ *
+ * <p>The {@code append}, {@code comment} and {@code eol} methods throw an {@link UncheckedIOException} if the
+ * content can't be written. {@link #toString()} returns only the content that hasn't been written yet.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public class CSVWriter extends CSVStringBuilder implements Closeable, Flushable {
+
+    private final Writer writer;
+    private final Utf8ChannelOutput output;
+    private final int flushThreshold;
+    // the listener of the writes to a Writer, which are reported as characters
+    private final CSVMetricsListener writerListener;
+    private char[] chunk;
+
+    /**
+     * Constructs a CSV writer. The writer is closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param writer        the destination of the data
+     */
+    public CSVWriter(final CSVConfiguration configuration, final Writer writer) {
+        this(configuration, Objects.requireNonNull(writer), null, configuration.getMetricsListener());
+    }
+
+    /**
+     * Constructs a CSV writer that encodes the data using the charset of the configuration. The stream is closed
+     * when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param outputStream  the destination of the data
+     */
+    public CSVWriter(final CSVConfiguration configuration, final OutputStream outputStream) {
+        this(configuration, new OutputStreamWriter(metered(configuration, Objects.requireNonNull(outputStream)),
+                configuration.getCharset()), null, null);
+    }
+
+    /**
+     * Constructs a CSV writer that encodes the data using the charset of the configuration. The channel is closed
+     * when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param channel       the destination of the data
+     */
+    public CSVWriter(final CSVConfiguration configuration, final WritableByteChannel channel) {
+        this(configuration, isUtf8Channel(configuration, Objects.requireNonNull(channel)) ? null
+                        : Channels.newWriter(metered(configuration, channel), configuration.getCharset().newEncoder(),
+                                configuration.getFlushThreshold()),
+                isUtf8Channel(configuration, channel) ? new Utf8ChannelOutput(
+                        (GatheringByteChannel) metered(configuration, channel), configuration.isDirectBuffers())
+                        : null, null);
+    }
+
+    private CSVWriter(final CSVConfiguration configuration, final Writer writer, final Utf8ChannelOutput output,
+                      final CSVMetricsListener writerListener) {
+        super(configuration, configuration.getFlushThreshold() + configuration.getFlushThreshold() / 4);
+        this.writer = writer;
+        this.output = output;
+        this.flushThreshold = configuration.getFlushThreshold();
+        this.writerListener = writerListener;
+    }
+
+    /**
+     * Wraps a channel to report the bytes written when the configuration has a metrics listener.
+     */
+    private static WritableByteChannel metered(final CSVConfiguration configuration,
+                                               final WritableByteChannel channel) {
+        CSVMetricsListener listener = configuration.getMetricsListener();
+        return listener == null ? channel : MeteredChannel.writing(channel, listener);
+    }
+
+    private static OutputStream metered(final CSVConfiguration configuration, final OutputStream outputStream) {
+        CSVMetricsListener listener = configuration.getMetricsListener();
+        return listener == null ? outputStream : new MeteredOutputStream(outputStream, listener);
+    }
+
+    private static boolean isUtf8Channel(final CSVConfiguration configuration, final WritableByteChannel channel) {
+        return channel instanceof GatheringByteChannel && StandardCharsets.UTF_8.equals(configuration.getCharset());
+    }
+
+    @Override
+    void contentAppended(final StringBuilder buffer) {
+        if (buffer.length() >= flushThreshold) {
+            try {
+                write(buffer, false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void write(final StringBuilder buffer, final boolean endOfInput) throws IOException {
+
+        int length = buffer.length();
+        if (length == 0) {
+            return;
+        }
+        if (output != null) {
+            buffer.delete(0, output.write(buffer, endOfInput));
+            return;
+        }
+        if (chunk == null || chunk.length < length) {
+            chunk = new char[Math.max(length, flushThreshold)];
+        }
+        buffer.getChars(0, length, chunk, 0);
+        long startTime = writerListener == null ? 0 : System.nanoTime();
+        writer.write(chunk, 0, length);
+        if (writerListener != null) {
+            writerListener.bytesWritten(length, System.nanoTime() - startTime);
+        }
+        buffer.setLength(0);
+    }
+
+    /**
+     * Writes the pending content and flushes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        write(getBuffer(), false);
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes the pending content and closes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            write(getBuffer(), true);
+        } finally {
+            if (writer == null) {
+                output.close();
+            } else {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * A stream that reports the bytes written to another stream and the time blocked doing it.
+     */
+    private static final class MeteredOutputStream extends FilterOutputStream {
+
+        private final CSVMetricsListener listener;
+
+        MeteredOutputStream(final OutputStream out, final CSVMetricsListener listener) {
+            super(out);
+            this.listener = listener;
+        }
+
+        @Override
+        public void write(final int value) throws IOException {
+            write(new byte[] {(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] data, final int offset, final int length) throws IOException {
+            long startTime = System.nanoTime();
+            out.write(data, offset, length);
+            listener.bytesWritten(length, System.nanoTime() - startTime);
+        }
+    }
+}
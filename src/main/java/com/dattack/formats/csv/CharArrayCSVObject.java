@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * A {@link CSVObject} backed by the characters of the record and the offsets of its fields. A string is only
+ * created when a field is requested through {@link #get(int)}. The same instance can be reused for several records
+ * by means of {@link #reset(char[], int[], int)}.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+final class CharArrayCSVObject extends CSVObject {
+
+    private char[] buffer;
+    private int[] offsets;
+    private int size;
+
+    /**
+     * Creates a new object.
+     *
+     * @param configuration the CSV configuration
+     * @param buffer        the unescaped characters of the record
+     * @param offsets       the start (inclusive) and end (exclusive) offsets of each field
+     * @param size          the number of fields
+     */
+    CharArrayCSVObject(final CSVConfiguration configuration, final char[] buffer, final int[] offsets,
+                       final int size) {
+        super(configuration);
+        reset(buffer, offsets, size);
+    }
+
+    /**
+     * Binds this object to another record.
+     */
+    void reset(final char[] newBuffer, final int[] newOffsets, final int newSize) {
+        this.buffer = newBuffer;
+        this.offsets = newOffsets;
+        this.size = newSize;
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= getSize()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getSize());
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String get(final int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        int start = offsets[index * 2];
+        return new String(buffer, start, offsets[index * 2 + 1] - start);
+    }
+
+    @Override
+    public CSVField getField(final int index, final CSVField field) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return field.wrap(buffer, offsets[index * 2], offsets[index * 2 + 1]);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads the records of a character stream. The characters are read into an internal buffer where the records are
+ * located and tokenized in place, so no string is created until a field is requested.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class CharRecordReader implements RecordReader {
+
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final Reader reader;
+    private final CSVTokenizer tokenizer;
+    private final char commentChar;
+    private final CSVMetricsListener listener;
+    private final SkippedLines skippedLines;
+    private final CSVRowFilter filter;
+    private final CSVField filterField = new CSVField();
+    private ColumnProjection projection;
+    // the view of the current record used to evaluate the filter
+    private CharArrayCSVObject filterRow;
+
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private int recordStart;
+    // the time spent reading input while the current record is located
+    private long fillNanos;
+
+    CharRecordReader(final CSVConfiguration configuration, final Reader reader) {
+        this(configuration, reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    CharRecordReader(final CSVConfiguration configuration, final Reader reader, final int bufferSize) {
+        this.reader = reader;
+        this.tokenizer = new CSVTokenizer(configuration);
+        this.commentChar = configuration.getCommentChar();
+        this.buffer = new char[Math.max(bufferSize, 16)];
+        this.listener = configuration.getMetricsListener();
+        this.skippedLines = listener == null ? null : new SkippedLines(listener, commentChar);
+        this.filter = configuration.getFilter();
+        this.projection = configuration.getProjection();
+        if (projection != null && projection.isResolved()) {
+            tokenizer.setProjection(projection);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @Override
+    public CSVObject next() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return tokenizer.toObject(buffer, recordStart);
+    }
+
+    @Override
+    public void forEach(final CSVRowVisitor visitor) throws IOException {
+        CharArrayCSVObject row = null;
+        while (advance()) {
+            if (row == null) {
+                row = new CharArrayCSVObject(tokenizer.getConfiguration(), buffer, tokenizer.getOffsets(),
+                        tokenizer.getSize());
+            } else {
+                row.reset(buffer, tokenizer.getOffsets(), tokenizer.getSize());
+            }
+            visitor.visit(row);
+        }
+    }
+
+    /**
+     * Moves to the next record matching the filter, skipping blank and comment lines, and tokenizes it. When the
+     * columns are selected by name, the first record is the header and is consumed to locate them.
+     *
+     * @return <code>false</code> when there are no more records
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean advance() throws IOException {
+        if (projection != null && !projection.isResolved()) {
+            if (!nextRecord()) {
+                return false;
+            }
+            projection = projection.resolve(tokenizer.toObject(buffer, recordStart));
+            tokenizer.setProjection(projection);
+        }
+        while (nextRecord()) {
+            if (filter == null || matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches() {
+        if (filterRow == null) {
+            filterRow = new CharArrayCSVObject(tokenizer.getConfiguration(), buffer, tokenizer.getOffsets(),
+                    tokenizer.getSize());
+        } else {
+            filterRow.reset(buffer, tokenizer.getOffsets(), tokenizer.getSize());
+        }
+        return filter.test(filterRow, filterField);
+    }
+
+    private boolean nextRecord() throws IOException {
+
+        while (true) {
+            if (!skipWhitespaces()) {
+                if (skippedLines != null) {
+                    skippedLines.report();
+                }
+                return false;
+            }
+
+            if (buffer[position] == commentChar) {
+                if (skippedLines != null) {
+                    skippedLines.comment();
+                }
+                int end;
+                while ((end = indexOfEol()) < 0) {
+                    fill();
+                }
+                position = end;
+                continue;
+            }
+
+            long startTime = 0;
+            if (listener != null) {
+                startTime = System.nanoTime();
+                fillNanos = 0;
+            }
+
+            int end;
+            while ((end = tokenizer.findRecordEnd(buffer, position, limit, eof)) < 0) {
+                fill();
+            }
+
+            int to = end;
+            while (to > position && buffer[to - 1] <= ' ') {
+                to--;
+            }
+            recordStart = position;
+            tokenizer.tokenize(buffer, position, to);
+            position = end;
+            if (listener != null) {
+                skippedLines.record();
+                listener.rowRead(System.nanoTime() - startTime - fillNanos);
+            }
+            return true;
+        }
+    }
+
+    private boolean skipWhitespaces() throws IOException {
+        while (true) {
+            while (position < limit) {
+                if (buffer[position] > ' ') {
+                    return true;
+                }
+                if (skippedLines != null) {
+                    skippedLines.whitespace(buffer[position]);
+                }
+                position++;
+            }
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    private int indexOfEol() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n' || buffer[i] == '\r') {
+                return i;
+            }
+        }
+        return eof ? limit : -1;
+    }
+
+    /**
+     * Reads more characters, keeping the ones after the current position.
+     */
+    private void fill() throws IOException {
+
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        long startTime = listener == null ? 0 : System.nanoTime();
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (listener != null) {
+            fillNanos += System.nanoTime() - startTime;
+        }
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+}
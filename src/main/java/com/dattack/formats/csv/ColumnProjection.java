@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The columns selected by {@link CSVConfiguration.CsvConfigurationBuilder#withColumns(int...)} or
+ * {@link CSVConfiguration.CsvConfigurationBuilder#withColumnNames(String...)}. Each selected column has a
+ * <i>slot</i>, its position in the projected rows; the tokenizers store the fields of the selected columns in their
+ * slots and skip the rest without unescaping them.
+ *
+ * <p>A selection by name is unresolved until the header of the data is read (see {@link #resolve(CSVObject)}).
+ * Instances are immutable.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class ColumnProjection {
+
+    private static final int NO_SLOT = -1;
+
+    private final int[] columns;
+    private final String[] names;
+    // the slot of each column up to the last selected one
+    private final int[] slots;
+
+    private ColumnProjection(final int[] columns, final String[] names) {
+        this.columns = columns;
+        this.names = names;
+        if (columns == null) {
+            this.slots = null;
+        } else {
+            int lastColumn = -1;
+            for (int column : columns) {
+                lastColumn = Math.max(lastColumn, column);
+            }
+            this.slots = new int[lastColumn + 1];
+            Arrays.fill(slots, NO_SLOT);
+            for (int i = 0; i < columns.length; i++) {
+                slots[columns[i]] = i;
+            }
+        }
+    }
+
+    /**
+     * Creates a projection of the columns with the given indexes.
+     *
+     * @param columns the zero-based indexes of the columns, in the order of the projected rows
+     * @return the projection or <code>null</code> if no column is selected
+     * @throws IllegalArgumentException if an index is negative or repeated
+     */
+    static ColumnProjection ofColumns(final int... columns) {
+
+        if (columns == null || columns.length == 0) {
+            return null;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] < 0) {
+                throw new IllegalArgumentException("The column index can't be negative: " + columns[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (columns[j] == columns[i]) {
+                    throw new IllegalArgumentException("The column " + columns[i] + " is selected twice");
+                }
+            }
+        }
+        return new ColumnProjection(columns.clone(), null);
+    }
+
+    /**
+     * Creates a projection of the columns with the given names in the header of the data.
+     *
+     * @param names the names of the columns, in the order of the projected rows
+     * @return the projection or <code>null</code> if no column is selected
+     * @throws IllegalArgumentException if a name is <code>null</code> or repeated
+     */
+    static ColumnProjection ofNames(final String... names) {
+
+        if (names == null || names.length == 0) {
+            return null;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                throw new IllegalArgumentException("The column name can't be null");
+            }
+            for (int j = 0; j < i; j++) {
+                if (names[j].equals(names[i])) {
+                    throw new IllegalArgumentException("The column " + names[i] + " is selected twice");
+                }
+            }
+        }
+        return new ColumnProjection(null, names.clone());
+    }
+
+    /**
+     * Checks whether the indexes of the selected columns are known.
+     *
+     * @return <code>false</code> if the columns are selected by name and the header hasn't been read yet
+     */
+    boolean isResolved() {
+        return columns != null;
+    }
+
+    /**
+     * Looks up the selected names in a header row.
+     *
+     * @param header the first row of the data
+     * @return a resolved projection of the same columns
+     * @throws IOException if the header doesn't contain one of the names
+     */
+    ColumnProjection resolve(final CSVObject header) throws IOException {
+
+        if (isResolved()) {
+            return this;
+        }
+
+        int[] indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indexes[i] = indexOf(header, names[i]);
+            if (indexes[i] < 0) {
+                throw new IOException("The header doesn't contain the column " + names[i]);
+            }
+        }
+        return new ColumnProjection(indexes, names);
+    }
+
+    private static int indexOf(final CSVObject header, final String name) {
+        for (int i = 0; i < header.getSize(); i++) {
+            if (name.equals(header.get(i))) {
+                return i;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * Returns the number of fields of the projected rows.
+     */
+    int getSize() {
+        return names == null ? columns.length : names.length;
+    }
+
+    /**
+     * Returns the slot of a column or -1 if the column isn't selected.
+     */
+    int getSlot(final int column) {
+        return column < slots.length ? slots[column] : NO_SLOT;
+    }
+
+    /**
+     * Returns the index of the last selected column of the rows; the fields after it don't need to be scanned.
+     */
+    int getLastColumn() {
+        return slots.length - 1;
+    }
+
+    /**
+     * Returns a copy of the indexes of the selected columns, or <code>null</code> if they aren't resolved.
+     */
+    int[] getColumns() {
+        return columns == null ? null : columns.clone();
+    }
+
+    /**
+     * Returns a copy of the names of the selected columns, or <code>null</code> if they are selected by index.
+     */
+    String[] getNames() {
+        return names == null ? null : names.clone();
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Formattable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A format string of {@link java.util.Formatter} parsed once and applied to a single argument. The common
+ * patterns, made of literal text and one {@code %s}, {@code %d} or {@code %f} conversion with optional width,
+ * precision and the {@code -} or {@code 0} flags, are applied directly; the rest are delegated to
+ * {@link String#format(Locale, String, Object...)}. In both cases, the result is the same as that of
+ * {@code String.format(format, value)}.
+ *
+ * <p>The instances are immutable and are shared by all the builders through a bounded cache.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class CompiledFormat {
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private static final int DEFAULT_PRECISION = 6;
+
+    private static final int MAX_PRECISION = 17;
+
+    private static final Map<String, CompiledFormat> CACHE = new ConcurrentHashMap<>();
+
+    private static final char NONE = '\u0000';
+
+    private final String pattern;
+    private final Locale locale;
+
+    // null when the pattern must be applied by String.format
+    private final String prefix;
+    private final String suffix;
+    private final char conversion;
+    private final boolean leftJustify;
+    private final boolean zeroPad;
+    private final int width;
+    private final int precision;
+    private final char decimalSeparator;
+
+    private CompiledFormat(final String pattern, final Locale locale) {
+
+        this.pattern = pattern;
+        this.locale = locale;
+
+        Parser parser = new Parser(pattern);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        if (parser.parse() && symbols.getZeroDigit() == '0') {
+            this.prefix = parser.prefix;
+            this.suffix = parser.literal.toString();
+        } else {
+            this.prefix = null;
+            this.suffix = null;
+        }
+        this.conversion = parser.conversion;
+        this.leftJustify = parser.leftJustify;
+        this.zeroPad = parser.zeroPad;
+        this.width = parser.width;
+        this.precision = parser.precision < 0 ? DEFAULT_PRECISION : parser.precision;
+        this.decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    /**
+     * Returns the compiled version of a format string for the current default locale.
+     *
+     * @param pattern the format string
+     * @return the compiled format
+     */
+    static CompiledFormat of(final String pattern) {
+
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        CompiledFormat format = CACHE.get(pattern);
+        if (format == null || !format.locale.equals(locale)) {
+            format = new CompiledFormat(pattern, locale);
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                // the patterns are usually constants, so the cache is only filled by unusual clients
+                CACHE.clear();
+            }
+            CACHE.put(pattern, format);
+        }
+        return format;
+    }
+
+    /**
+     * Formats a value and appends the result to a builder.
+     *
+     * @param builder the destination
+     * @param value   the value to format
+     */
+    void formatTo(final StringBuilder builder, final Object value) {
+
+        if (prefix != null) {
+            int start = builder.length();
+            builder.append(prefix);
+            if (appendValue(builder, value)) {
+                builder.append(suffix);
+                return;
+            }
+            builder.setLength(start);
+        }
+        builder.append(String.format(locale, pattern, value));
+    }
+
+    private boolean appendValue(final StringBuilder builder, final Object value) {
+
+        int start = builder.length();
+        switch (conversion) {
+            case 's':
+                if (value instanceof Formattable) {
+                    return false;
+                }
+                builder.append(value);
+                break;
+            case 'd':
+                if (!(value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte)) {
+                    return false;
+                }
+                builder.append(((Number) value).longValue());
+                break;
+            case 'f':
+                if (!(value instanceof Double || value instanceof Float)
+                        || !appendFixed(builder, ((Number) value).doubleValue())) {
+                    return false;
+                }
+                break;
+            default:
+                // no conversion
+                return true;
+        }
+        pad(builder, start);
+        return true;
+    }
+
+    /**
+     * Appends a double with a fixed number of fraction digits, rounding its shortest decimal representation with
+     * the HALF_UP mode as {@link java.util.Formatter} does.
+     */
+    private boolean appendFixed(final StringBuilder builder, final double value) {
+
+        double abs = Math.abs(value);
+        int scale = FieldFormatter.scaleOf(abs);
+        if (scale < 0) {
+            return false;
+        }
+
+        long unscaled = FieldFormatter.unscaledOf(abs, scale);
+        if (scale > precision) {
+            long divisor = FieldFormatter.powerOfTen(scale - precision);
+            long remainder = unscaled % divisor;
+            unscaled /= divisor;
+            if (remainder * 2 >= divisor) {
+                unscaled++;
+            }
+            scale = precision;
+        }
+
+        if (Double.compare(value, 0.0) < 0) {
+            builder.append('-');
+        }
+        long power = FieldFormatter.powerOfTen(scale);
+        builder.append(unscaled / power);
+        if (precision > 0) {
+            builder.append(decimalSeparator);
+            if (scale > 0) {
+                FieldFormatter.appendPadded(builder, unscaled % power, scale);
+            }
+            for (int i = scale; i < precision; i++) {
+                builder.append('0');
+            }
+        }
+        return true;
+    }
+
+    private void pad(final StringBuilder builder, final int start) {
+
+        int padding = width - (builder.length() - start);
+        if (padding <= 0) {
+            return;
+        }
+
+        if (leftJustify) {
+            for (int i = 0; i < padding; i++) {
+                builder.append(' ');
+            }
+        } else {
+            int index = start;
+            char padChar = ' ';
+            if (zeroPad) {
+                padChar = '0';
+                if (builder.charAt(start) == '-') {
+                    index++;
+                }
+            }
+            char[] chars = new char[padding];
+            Arrays.fill(chars, padChar);
+            builder.insert(index, chars);
+        }
+    }
+
+    /**
+     * Splits a format string into the text before the conversion, the conversion and the text after it.
+     */
+    private static final class Parser {
+
+        private final String pattern;
+        private final StringBuilder literal = new StringBuilder();
+        private String prefix;
+        private char conversion = NONE;
+        private boolean leftJustify;
+        private boolean zeroPad;
+        private int width = -1;
+        private int precision = -1;
+
+        private Parser(final String pattern) {
+            this.pattern = pattern;
+        }
+
+        /**
+         * Parses the pattern.
+         *
+         * @return <code>true</code> if the pattern can be applied directly
+         */
+        private boolean parse() {
+
+            int index = 0;
+            while (index < pattern.length()) {
+                char c = pattern.charAt(index++);
+                if (c != '%') {
+                    literal.append(c);
+                    continue;
+                }
+
+                boolean left = false;
+                boolean zero = false;
+                int specWidth = -1;
+                int specPrecision = -1;
+                while (index < pattern.length() && (pattern.charAt(index) == '-' || pattern.charAt(index) == '0')) {
+                    left |= pattern.charAt(index) == '-';
+                    zero |= pattern.charAt(index) == '0';
+                    index++;
+                }
+                int digitsStart = index;
+                while (index < pattern.length() && Character.isDigit(pattern.charAt(index))) {
+                    index++;
+                }
+                if (index > digitsStart) {
+                    specWidth = parseNumber(digitsStart, index);
+                }
+                if (index < pattern.length() && pattern.charAt(index) == '.') {
+                    digitsStart = ++index;
+                    while (index < pattern.length() && Character.isDigit(pattern.charAt(index))) {
+                        index++;
+                    }
+                    if (index == digitsStart) {
+                        return false;
+                    }
+                    specPrecision = parseNumber(digitsStart, index);
+                }
+                if (index >= pattern.length()) {
+                    return false;
+                }
+
+                char specConversion = pattern.charAt(index++);
+                boolean noOptions = !left && !zero && specWidth < 0 && specPrecision < 0;
+                if (specConversion == '%' && noOptions) {
+                    literal.append('%');
+                } else if (specConversion == 'n' && noOptions) {
+                    literal.append(System.lineSeparator());
+                } else if (!isValid(specConversion, left, zero, specWidth, specPrecision)) {
+                    return false;
+                } else {
+                    prefix = literal.toString();
+                    literal.setLength(0);
+                    conversion = specConversion;
+                    leftJustify = left;
+                    zeroPad = zero;
+                    width = specWidth;
+                    precision = specPrecision;
+                }
+            }
+
+            if (prefix == null) {
+                // no conversion
+                prefix = literal.toString();
+                literal.setLength(0);
+            }
+            return true;
+        }
+
+        private boolean isValid(final char specConversion, final boolean left, final boolean zero,
+                                final int specWidth, final int specPrecision) {
+
+            if (conversion != NONE || specWidth == 0 || (left || zero) && specWidth < 0 || left && zero) {
+                // several conversions or invalid flags
+                return false;
+            }
+            switch (specConversion) {
+                case 's':
+                    return !zero && specPrecision < 0;
+                case 'd':
+                    return specPrecision < 0;
+                case 'f':
+                    return specPrecision <= MAX_PRECISION;
+                default:
+                    return false;
+            }
+        }
+
+        private int parseNumber(final int from, final int to) {
+            if (to - from > 9) {
+                return 0;
+            }
+            return Integer.parseInt(pattern.substring(from, to));
+        }
+    }
+}
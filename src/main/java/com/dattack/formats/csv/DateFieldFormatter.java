@@ -0,0 +1,589 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Immutable and thread-safe formatter for the date and time values of a CSV document. It accepts the patterns of
+ * {@link SimpleDateFormat} and produces the same output, using {@code java.time} internally.
+ *
+ * <p>{@code java.time} uses the proleptic ISO calendar and the offsets of {@link ZoneRules}, while
+ * {@link SimpleDateFormat} uses the Julian-Gregorian calendar and the offsets of {@link TimeZone}, which ignores the
+ * history of the zone before 1900 and truncates the local mean time offsets to minutes. The values before 1900, and
+ * those where both offsets differ, are formatted and parsed with a {@link SimpleDateFormat} under a lock.</p>
+ *
+ * <p>The two-digit years are parsed within the century that starts 80 years before the creation of the formatter,
+ * as {@link SimpleDateFormat} does. The values in the first year of that century, whose century depends on the day
+ * of the year, are parsed by the {@link SimpleDateFormat}, and so are all the values of a pattern with a one-letter
+ * year.</p>
+ *
+ * <p>Two optimizations are applied:</p>
+ * <ul>
+ *     <li>the ISO-like patterns ({@code yyyy-MM-dd}, {@code HH:mm:ss}, {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX} and
+ *     their variants) are formatted and parsed by hand;</li>
+ *     <li>when the pattern contains at most one milliseconds field, the text before and after that field is cached
+ *     for the last formatted second, so consecutive values within the same second only format the
+ *     milliseconds.</li>
+ * </ul>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class DateFieldFormatter {
+
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final int SECONDS_PER_DAY = 86_400;
+    // 1900-01-02T00:00:00Z: the values before it use the Julian-Gregorian calendar of SimpleDateFormat
+    private static final long MIN_ISO_SECOND = -2_208_902_400L;
+
+    private final TimeZone timeZone;
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final DateFormat legacyFormat;
+    private final ZoneOffset fixedOffset;
+    private final DateTimeFormatter formatter;
+
+    // the values parsed by java.time before this instant may belong to the next century for SimpleDateFormat
+    private final long twoDigitYearLimit;
+    private final boolean legacyParse;
+
+    // cacheable layout: prefix + milliseconds + suffix
+    private final boolean cacheable;
+    private final DateTimeFormatter prefixFormatter;
+    private final DateTimeFormatter suffixFormatter;
+    private final int millisWidth;
+
+    // ISO layout, or null when the pattern isn't ISO-like
+    private final IsoLayout iso;
+
+    private volatile CachedSecond cachedSecond;
+
+    /**
+     * Creates a formatter.
+     *
+     * @param pattern  the {@link SimpleDateFormat} pattern
+     * @param timeZone the time zone of the values
+     */
+    DateFieldFormatter(final String pattern, final TimeZone timeZone) {
+
+        this.timeZone = timeZone;
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
+        simpleDateFormat.setTimeZone(timeZone);
+        this.legacyFormat = simpleDateFormat;
+        this.zone = timeZone.toZoneId();
+        this.rules = zone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH) : null;
+
+        List<Segment> segments = Segment.parse(pattern);
+        LocalDate centuryStart = Instant.ofEpochMilli(simpleDateFormat.get2DigitYearStart().getTime()).atZone(zone)
+                .toLocalDate();
+        this.formatter = toFormatter(segments, centuryStart).withZone(zone);
+        this.iso = IsoLayout.of(pattern);
+
+        boolean twoDigitYear = false;
+        boolean oneDigitYear = false;
+        for (Segment segment : segments) {
+            twoDigitYear |= segment.isLetter('y') && segment.text.length() == 2;
+            oneDigitYear |= segment.isLetter('y') && segment.text.length() == 1;
+        }
+        this.twoDigitYearLimit = twoDigitYear ? LocalDate.of(centuryStart.getYear() + 1, 1, 1).atStartOfDay(zone)
+                .toInstant().toEpochMilli() : Long.MIN_VALUE;
+        this.legacyParse = oneDigitYear;
+
+        int millisIndex = -1;
+        int millisCount = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).isLetter('S')) {
+                millisIndex = i;
+                millisCount++;
+            }
+        }
+
+        this.cacheable = millisCount <= 1;
+        if (millisCount == 1) {
+            this.prefixFormatter = toFormatter(segments.subList(0, millisIndex), centuryStart).withZone(zone);
+            this.suffixFormatter = toFormatter(segments.subList(millisIndex + 1, segments.size()), centuryStart)
+                    .withZone(zone);
+            this.millisWidth = segments.get(millisIndex).text.length();
+        } else {
+            this.prefixFormatter = formatter;
+            this.suffixFormatter = null;
+            this.millisWidth = 0;
+        }
+    }
+
+    /**
+     * Translates a {@link java.text.SimpleDateFormat} pattern into a {@link DateTimeFormatter}. Most pattern letters
+     * have the same meaning in both classes; the exceptions are translated explicitly: {@code S} is the number of
+     * milliseconds, {@code u} the day number of the week and {@code yy} a year within the century starting at the
+     * given date.
+     */
+    private static DateTimeFormatter toFormatter(final List<Segment> segments, final LocalDate centuryStart) {
+
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+        for (Segment segment : segments) {
+            int count = segment.text.length();
+            if (segment.literal) {
+                builder.appendLiteral(segment.text);
+            } else if (segment.isLetter('S')) {
+                builder.appendValue(ChronoField.MILLI_OF_SECOND, count, Math.max(count, 3), SignStyle.NOT_NEGATIVE);
+            } else if (segment.isLetter('u')) {
+                builder.appendValue(ChronoField.DAY_OF_WEEK, count, Math.max(count, 1), SignStyle.NOT_NEGATIVE);
+            } else if (segment.isLetter('y') && count == 2) {
+                builder.appendValueReduced(ChronoField.YEAR_OF_ERA, 2, 2, centuryStart);
+            } else {
+                builder.appendPattern(segment.text);
+            }
+        }
+        return builder.toFormatter();
+    }
+
+    /**
+     * Returns the {@code java.time} formatter equivalent to the pattern of this object, with its time zone.
+     */
+    DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Formats the instant represented by a number of milliseconds since the epoch.
+     *
+     * @param epochMillis the milliseconds since the epoch
+     * @return the formatted value
+     */
+    String format(final long epochMillis) {
+        StringBuilder builder = new StringBuilder(32);
+        formatTo(epochMillis, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Formats the instant represented by a number of milliseconds since the epoch and appends it to a builder.
+     *
+     * @param epochMillis the milliseconds since the epoch
+     * @param builder     the builder
+     */
+    void formatTo(final long epochMillis, final StringBuilder builder) {
+
+        long second = Math.floorDiv(epochMillis, MILLIS_PER_SECOND);
+        if (!cacheable) {
+            if (isLegacy(second)) {
+                formatLegacy(epochMillis, builder);
+            } else {
+                formatter.formatTo(Instant.ofEpochMilli(epochMillis), builder);
+            }
+            return;
+        }
+
+        CachedSecond cached = cachedSecond;
+        if (cached == null || cached.second != second) {
+            if (isLegacy(second)) {
+                formatLegacy(epochMillis, builder);
+                return;
+            }
+            cached = formatSecond(second);
+            if (cached == null) {
+                formatter.formatTo(Instant.ofEpochMilli(epochMillis), builder);
+                return;
+            }
+            cachedSecond = cached;
+        }
+
+        builder.append(cached.prefix);
+        if (millisWidth > 0) {
+            appendPadded(builder, (int) Math.floorMod(epochMillis, MILLIS_PER_SECOND), millisWidth);
+        }
+        builder.append(cached.suffix);
+    }
+
+    private CachedSecond formatSecond(final long second) {
+
+        if (iso == null) {
+            Instant instant = Instant.ofEpochSecond(second);
+            return new CachedSecond(second, prefixFormatter.format(instant),
+                    suffixFormatter == null ? "" : suffixFormatter.format(instant));
+        }
+
+        int offsetSeconds = getOffset(second).getTotalSeconds();
+        long localSecond = second + offsetSeconds;
+        long days = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+        StringBuilder prefix = new StringBuilder(24);
+        if (iso.date) {
+            LocalDate date = LocalDate.ofEpochDay(days);
+            if (date.getYear() < 1 || date.getYear() > 9999) {
+                return null;
+            }
+            appendPadded(prefix, date.getYear(), 4);
+            prefix.append('-');
+            appendPadded(prefix, date.getMonthValue(), 2);
+            prefix.append('-');
+            appendPadded(prefix, date.getDayOfMonth(), 2);
+            if (iso.time) {
+                prefix.append(iso.separator);
+            }
+        }
+        if (iso.time) {
+            appendPadded(prefix, secondOfDay / 3600, 2);
+            prefix.append(':');
+            appendPadded(prefix, secondOfDay / 60 % 60, 2);
+            prefix.append(':');
+            appendPadded(prefix, secondOfDay % 60, 2);
+            if (iso.millis) {
+                prefix.append('.');
+            }
+        }
+
+        String suffix = "";
+        if (iso.offset) {
+            suffix = offsetSeconds == 0 ? "Z" : ZoneOffset.ofTotalSeconds(offsetSeconds).getId();
+        }
+        return new CachedSecond(second, prefix.toString(), suffix);
+    }
+
+    private ZoneOffset getOffset(final long second) {
+        return fixedOffset != null ? fixedOffset : rules.getOffset(Instant.ofEpochSecond(second));
+    }
+
+    /**
+     * Returns <code>true</code> if {@link SimpleDateFormat} produces another text for a second: it is before 1900
+     * or the offset of the {@link TimeZone} isn't the whole number of minutes of the {@link ZoneRules}.
+     */
+    private boolean isLegacy(final long second) {
+        if (second < MIN_ISO_SECOND) {
+            return true;
+        }
+        int offsetSeconds = getOffset(second).getTotalSeconds();
+        return offsetSeconds % 60 != 0 || (fixedOffset == null
+                && timeZone.getOffset(second * MILLIS_PER_SECOND) != offsetSeconds * MILLIS_PER_SECOND);
+    }
+
+    private void formatLegacy(final long epochMillis, final StringBuilder builder) {
+        // DateFormat instances are not thread-safe
+        synchronized (legacyFormat) {
+            builder.append(legacyFormat.format(new Date(epochMillis)));
+        }
+    }
+
+    private long parseLegacy(final CharSequence value, final DateTimeException cause) {
+        String text = value.toString();
+        try {
+            synchronized (legacyFormat) {
+                return legacyFormat.parse(text).getTime();
+            }
+        } catch (ParseException e) {
+            IllegalArgumentException exception = new IllegalArgumentException("Unparseable date: \"" + text + "\"",
+                    e);
+            if (cause != null) {
+                exception.addSuppressed(cause);
+            }
+            throw exception;
+        }
+    }
+
+    private static void appendPadded(final StringBuilder builder, final int value, final int width) {
+        int digits = value < 10 ? 1 : value < 100 ? 2 : value < 1000 ? 3 : value < 10000 ? 4 : 10;
+        for (int i = digits; i < width; i++) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+
+    /**
+     * Parses a value formatted with the pattern of this object.
+     *
+     * @param value the value to parse
+     * @return the milliseconds since the epoch
+     * @throws IllegalArgumentException if the value can't be parsed
+     */
+    long parse(final CharSequence value) {
+
+        if (legacyParse) {
+            return parseLegacy(value, null);
+        }
+
+        long millis;
+        try {
+            millis = parseJavaTime(value);
+        } catch (DateTimeException e) {
+            // SimpleDateFormat is lenient, so it may still accept the value
+            return parseLegacy(value, e);
+        }
+        return millis < twoDigitYearLimit || isLegacy(Math.floorDiv(millis, MILLIS_PER_SECOND))
+                ? parseLegacy(value, null) : millis;
+    }
+
+    private long parseJavaTime(final CharSequence value) {
+
+        if (iso != null) {
+            long millis = iso.parse(value, this);
+            if (millis != Long.MIN_VALUE) {
+                return millis;
+            }
+        }
+
+        TemporalAccessor parsed = formatter.parse(value);
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        LocalDateTime dateTime = LocalDateTime.of(date == null ? LocalDate.of(1970, 1, 1) : date,
+                time == null ? LocalTime.MIDNIGHT : time);
+        ZoneOffset offset = parsed.query(TemporalQueries.offset());
+        if (offset != null) {
+            return dateTime.toInstant(offset).toEpochMilli();
+        }
+        return dateTime.atZone(zone).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+    }
+
+    /**
+     * A piece of a {@link java.text.SimpleDateFormat} pattern: a run of the same pattern letter or a literal text.
+     */
+    private static final class Segment {
+
+        private final String text;
+        private final boolean literal;
+
+        private Segment(final String text, final boolean literal) {
+            this.text = text;
+            this.literal = literal;
+        }
+
+        private boolean isLetter(final char letter) {
+            return !literal && text.charAt(0) == letter;
+        }
+
+        private static boolean isPatternLetter(final char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        private static List<Segment> parse(final String pattern) {
+
+            List<Segment> segments = new ArrayList<>();
+            int index = 0;
+            while (index < pattern.length()) {
+                char c = pattern.charAt(index);
+                if (c == '\'') {
+                    StringBuilder text = new StringBuilder();
+                    index++;
+                    if (index < pattern.length() && pattern.charAt(index) == '\'') {
+                        // two single quotes represent a single quote
+                        text.append('\'');
+                        index++;
+                    } else {
+                        while (index < pattern.length()) {
+                            char quoted = pattern.charAt(index++);
+                            if (quoted == '\'') {
+                                if (index < pattern.length() && pattern.charAt(index) == '\'') {
+                                    text.append('\'');
+                                    index++;
+                                } else {
+                                    break;
+                                }
+                            } else {
+                                text.append(quoted);
+                            }
+                        }
+                    }
+                    segments.add(new Segment(text.toString(), true));
+                } else if (isPatternLetter(c)) {
+                    int end = index + 1;
+                    while (end < pattern.length() && pattern.charAt(end) == c) {
+                        end++;
+                    }
+                    segments.add(new Segment(pattern.substring(index, end), false));
+                    index = end;
+                } else {
+                    segments.add(new Segment(Character.toString(c), true));
+                    index++;
+                }
+            }
+            return segments;
+        }
+    }
+
+    /**
+     * The shape of an ISO-like pattern: {@code [yyyy-MM-dd][('T'| )HH:mm:ss[.SSS]][XXX]}.
+     */
+    private static final class IsoLayout {
+
+        private final boolean date;
+        private final char separator;
+        private final boolean time;
+        private final boolean millis;
+        private final boolean offset;
+
+        private IsoLayout(final boolean date, final char separator, final boolean time, final boolean millis,
+                          final boolean offset) {
+            this.date = date;
+            this.separator = separator;
+            this.time = time;
+            this.millis = millis;
+            this.offset = offset;
+        }
+
+        private static IsoLayout of(final String pattern) {
+
+            String rest = pattern;
+            boolean date = rest.startsWith("yyyy-MM-dd");
+            if (date) {
+                rest = rest.substring("yyyy-MM-dd".length());
+            }
+
+            char separator = 0;
+            if (date && rest.startsWith("'T'")) {
+                separator = 'T';
+                rest = rest.substring(3);
+            } else if (date && rest.startsWith(" ")) {
+                separator = ' ';
+                rest = rest.substring(1);
+            }
+
+            boolean time = rest.startsWith("HH:mm:ss");
+            boolean millis = false;
+            if (time) {
+                rest = rest.substring("HH:mm:ss".length());
+                millis = rest.startsWith(".SSS");
+                if (millis) {
+                    rest = rest.substring(".SSS".length());
+                }
+            }
+
+            boolean offset = rest.equals("XXX");
+            if (offset) {
+                rest = "";
+            }
+
+            if (!rest.isEmpty() || !(date || time) || (date && time == (separator == 0))) {
+                return null;
+            }
+            return new IsoLayout(date, separator, time, millis, offset);
+        }
+
+        private int length() {
+            return (date ? 10 : 0) + (date && time ? 1 : 0) + (time ? 8 : 0) + (millis ? 4 : 0);
+        }
+
+        /**
+         * Parses a value with this layout.
+         *
+         * @return the milliseconds since the epoch or {@code Long.MIN_VALUE} if the value doesn't match the layout
+         */
+        private long parse(final CharSequence value, final DateFieldFormatter owner) {
+
+            int length = length();
+            if (value.length() < length) {
+                return Long.MIN_VALUE;
+            }
+
+            LocalDate localDate = LocalDate.of(1970, 1, 1);
+            int index = 0;
+            if (date) {
+                if (value.charAt(4) != '-' || value.charAt(7) != '-') {
+                    return Long.MIN_VALUE;
+                }
+                localDate = LocalDate.of(number(value, 0, 4), number(value, 5, 7), number(value, 8, 10));
+                index = 10;
+                if (time) {
+                    if (value.charAt(index) != separator) {
+                        return Long.MIN_VALUE;
+                    }
+                    index++;
+                }
+            }
+
+            LocalTime localTime = LocalTime.MIDNIGHT;
+            if (time) {
+                if (value.charAt(index + 2) != ':' || value.charAt(index + 5) != ':') {
+                    return Long.MIN_VALUE;
+                }
+                int nanos = 0;
+                if (millis) {
+                    if (value.charAt(index + 8) != '.') {
+                        return Long.MIN_VALUE;
+                    }
+                    nanos = number(value, index + 9, index + 12) * 1_000_000;
+                }
+                localTime = LocalTime.of(number(value, index, index + 2), number(value, index + 3, index + 5),
+                        number(value, index + 6, index + 8), nanos);
+            }
+
+            LocalDateTime dateTime = LocalDateTime.of(localDate, localTime);
+            if (!offset) {
+                if (value.length() != length) {
+                    return Long.MIN_VALUE;
+                }
+                // as SimpleDateFormat, use the standard time when the local time is ambiguous
+                return dateTime.atZone(owner.zone).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+            }
+
+            String offsetId = value.subSequence(length, value.length()).toString();
+            try {
+                return dateTime.toInstant(ZoneOffset.of(offsetId)).toEpochMilli();
+            } catch (DateTimeException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+
+        private static int number(final CharSequence value, final int from, final int to) {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new DateTimeException("Unparseable date: \"" + value + "\"");
+                }
+                result = result * 10 + digit;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The text formatted for a given second.
+     */
+    private static final class CachedSecond {
+
+        private final long second;
+        private final String prefix;
+        private final String suffix;
+
+        private CachedSecond(final long second, final String prefix, final String suffix) {
+            this.second = second;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+}
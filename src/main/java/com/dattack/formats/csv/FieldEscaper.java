@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * Escapes the values written by {@link CSVStringBuilder} in a single pass. The characters that need to be escaped
+ * are found using a lookup table computed once per configuration:
+ * <ul>
+ *     <li>the line feeds are replaced by a space when the end-of-line mark contains a line feed;</li>
+ *     <li>in a quoted value, the quote character is preceded by the escape character, or doubled when there is no
+ *     escape character;</li>
+ *     <li>in an unquoted value, a single-character separator is preceded by the escape character. When there is no
+ *     escape character, the value is quoted instead (see {@link #isQuoted(String, boolean)}).</li>
+ * </ul>
+ *
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class FieldEscaper {
+
+    private static final char NULL_CHAR = '\u0000';
+
+    private static final byte LINE_FEED = 1;
+    private static final byte QUOTED = 2;
+    private static final byte UNQUOTED = 4;
+    private static final byte SEPARATOR = 8;
+
+    private final byte[] table;
+    private final byte quotedMask;
+    private final byte unquotedMask;
+    private final char quoteChar;
+    private final char escapeChar;
+    private final boolean quoteSeparator;
+
+    FieldEscaper(final CSVConfiguration configuration) {
+
+        this.quoteChar = configuration.getQuoteChar();
+        this.escapeChar = configuration.getEscapeChar();
+        boolean replaceLineFeed = configuration.getEol().indexOf('\n') >= 0;
+        String separator = configuration.getSeparator();
+        boolean escapeSeparator = separator.length() == 1 && escapeChar != NULL_CHAR;
+        this.quoteSeparator = separator.length() == 1 && escapeChar == NULL_CHAR;
+
+        int size = '\n' + 1;
+        size = Math.max(size, quoteChar + 1);
+        if (escapeSeparator || quoteSeparator) {
+            size = Math.max(size, separator.charAt(0) + 1);
+        }
+
+        this.table = new byte[size];
+        if (replaceLineFeed) {
+            table['\n'] |= LINE_FEED;
+        }
+        if (quoteChar != NULL_CHAR) {
+            table[quoteChar] |= QUOTED;
+        }
+        if (escapeSeparator) {
+            table[separator.charAt(0)] |= UNQUOTED;
+        }
+        if (quoteSeparator) {
+            table[separator.charAt(0)] |= SEPARATOR;
+        }
+        this.quotedMask = (byte) (QUOTED | LINE_FEED);
+        this.unquotedMask = (byte) (UNQUOTED | LINE_FEED);
+    }
+
+    /**
+     * Checks whether the values are quoted: the quote character can be disabled by setting it to the null
+     * character.
+     */
+    boolean isQuoted(final boolean quote) {
+        return quote && quoteChar != NULL_CHAR;
+    }
+
+    /**
+     * Checks whether a value is quoted. When there is no escape character, a value containing a single-character
+     * separator is always quoted, as the separator can't be escaped.
+     *
+     * @param value the value to write
+     * @param quote whether the value should be quoted
+     * @return whether the value is quoted
+     * @throws IllegalArgumentException if the value contains the separator and it can't be quoted or escaped
+     */
+    boolean isQuoted(final String value, final boolean quote) {
+        if (isQuoted(quote) || !quoteSeparator || indexOfSpecial(value, SEPARATOR) < 0) {
+            return isQuoted(quote);
+        }
+        if (quoteChar == NULL_CHAR) {
+            throw new IllegalArgumentException("The separator can't be quoted or escaped in the value: " + value);
+        }
+        return true;
+    }
+
+    private int indexOfSpecial(final String value, final byte mask) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < table.length && (table[c] & mask) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Escapes a value.
+     *
+     * @param value the value to escape
+     * @param quote whether the value will be quoted, see {@link #isQuoted(boolean)}
+     * @return the escaped value, which is the given instance when nothing needs to be escaped
+     */
+    String escape(final String value, final boolean quote) {
+        byte mask = isQuoted(quote) ? quotedMask : unquotedMask;
+        int index = indexOfSpecial(value, mask);
+        if (index < 0) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 8);
+        escapeTo(value, index, mask, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the escaped value to a builder. When nothing needs to be escaped, the value is appended as is.
+     *
+     * @param value   the value to escape
+     * @param quote   whether the value will be quoted, see {@link #isQuoted(boolean)}
+     * @param builder the destination of the escaped value
+     * @return <code>true</code> if some character has been escaped
+     */
+    boolean escapeTo(final String value, final boolean quote, final StringBuilder builder) {
+        byte mask = isQuoted(quote) ? quotedMask : unquotedMask;
+        int index = indexOfSpecial(value, mask);
+        if (index < 0) {
+            builder.append(value);
+            return false;
+        }
+        escapeTo(value, index, mask, builder);
+        return true;
+    }
+
+    private void escapeTo(final String value, final int firstSpecial, final byte mask, final StringBuilder builder) {
+
+        int length = value.length();
+        builder.append(value, 0, firstSpecial);
+        for (int i = firstSpecial; i < length; i++) {
+            char c = value.charAt(i);
+            int flags = c < table.length ? table[c] & mask : 0;
+            if (flags == 0) {
+                builder.append(c);
+            } else if ((flags & LINE_FEED) != 0) {
+                builder.append(' ');
+            } else {
+                builder.append(escapeChar == NULL_CHAR ? c : escapeChar).append(c);
+            }
+        }
+    }
+}
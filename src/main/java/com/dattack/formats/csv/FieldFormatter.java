@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+/**
+ * Formats numbers directly into a {@link StringBuilder}, without creating intermediate objects. The output is the
+ * same as the one of the {@link java.text.DecimalFormat} used by {@link CSVStringBuilder}: pattern {@code 0},
+ * no grouping, unlimited fraction digits and no exponent.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class FieldFormatter {
+
+    private static final int MAX_SCALE = 17;
+
+    // 10^15: every decimal with up to 15 significant digits is converted to a distinct double
+    private static final double MAX_UNSCALED = 1e15;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17};
+
+    private static final long[] LONG_POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+        10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+        10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L,
+        100_000_000_000_000_000L};
+
+    private FieldFormatter() {
+        // static class
+    }
+
+    /**
+     * Appends a double when it is exactly the value of a decimal number with up to 15 significant digits, which
+     * covers most of the values read from text sources and sensors. Such a decimal number is the shortest
+     * representation of the double, so the digits are the same as those of {@link Double#toString(double)}.
+     *
+     * @param builder the destination
+     * @param value   the value to append
+     * @return <code>true</code> if the value has been appended, <code>false</code> if it must be formatted by other
+     *         means
+     */
+    static boolean appendDouble(final StringBuilder builder, final double value) {
+
+        if (value == 0) {
+            builder.append(1 / value < 0 ? "-0" : "0");
+            return true;
+        }
+
+        double abs = Math.abs(value);
+        int scale = scaleOf(abs);
+        if (scale < 0) {
+            return false;
+        }
+        appendDecimal(builder, value < 0, unscaledOf(abs, scale), scale);
+        return true;
+    }
+
+    /**
+     * Returns the minimum scale <i>s</i> such that a positive double, or zero, is exactly the value of the decimal
+     * number <i>m</i>&middot;10<sup>-s</sup>, where <i>m</i> is an integer with up to 15 digits.
+     *
+     * @param abs a positive or zero double
+     * @return the scale or -1 if there is no such decimal number
+     */
+    static int scaleOf(final double abs) {
+
+        if (!(abs < MAX_UNSCALED)) {
+            // large values, infinity and NaN
+            return -1;
+        }
+
+        for (int scale = 0; scale <= MAX_SCALE; scale++) {
+            double scaled = abs * POWERS_OF_TEN[scale];
+            if (scaled >= MAX_UNSCALED) {
+                return -1;
+            }
+            long unscaled = (long) scaled;
+            // both operands of the division are exact, so it is correctly rounded
+            if (unscaled == scaled && unscaled / POWERS_OF_TEN[scale] == abs) {
+                return scale;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the integer <i>m</i> of the decimal number found by {@link #scaleOf(double)}.
+     */
+    static long unscaledOf(final double abs, final int scale) {
+        return (long) (abs * POWERS_OF_TEN[scale]);
+    }
+
+    /**
+     * Returns 10 raised to the given power, which must be between 0 and 18.
+     */
+    static long powerOfTen(final int exponent) {
+        return LONG_POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Appends a non-negative number using at least the given number of digits, which must be between 0 and 18.
+     */
+    static void appendPadded(final StringBuilder builder, final long value, final int digits) {
+        for (int i = digits - 1; i > 0 && value < LONG_POWERS_OF_TEN[i]; i--) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+
+    private static void appendDecimal(final StringBuilder builder, final boolean negative, final long unscaled,
+                                      final int scale) {
+
+        long digits = unscaled;
+        int fractionDigits = scale;
+        while (fractionDigits > 0 && digits % 10 == 0) {
+            digits /= 10;
+            fractionDigits--;
+        }
+
+        if (negative) {
+            builder.append('-');
+        }
+        if (fractionDigits == 0) {
+            builder.append(digits);
+            return;
+        }
+
+        long power = LONG_POWERS_OF_TEN[fractionDigits];
+        builder.append(digits / power).append('.');
+        appendPadded(builder, digits % power, fractionDigits);
+    }
+}
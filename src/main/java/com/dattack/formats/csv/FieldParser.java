@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Parses the content of the fields directly from their characters, without creating intermediate strings for the
+ * common cases. The values are expected in the format written by {@link CSVStringBuilder} with the same
+ * configuration.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class FieldParser {
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final String INFINITY = "\u221E";
+
+    private FieldParser() {
+        // static class
+    }
+
+    private static NumberFormatException numberFormatException(final CharSequence value) {
+        return new NumberFormatException("For input string: \"" + value + "\"");
+    }
+
+    private static int digit(final CharSequence value, final int index) {
+        int digit = value.charAt(index) - '0';
+        if (digit < 0 || digit > 9) {
+            throw numberFormatException(value);
+        }
+        return digit;
+    }
+
+    static int parseInt(final CharSequence value) {
+        long result = parseLong(value);
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw numberFormatException(value);
+        }
+        return (int) result;
+    }
+
+    static long parseLong(final CharSequence value) {
+
+        int length = value.length();
+        if (length == 0) {
+            throw numberFormatException(value);
+        }
+
+        int index = 0;
+        boolean negative = false;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            index++;
+            if (length == 1) {
+                throw numberFormatException(value);
+            }
+        }
+
+        // accumulate negatively to cover Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; index < length; index++) {
+            int digit = digit(value, index);
+            if (result < multiplyMin) {
+                throw numberFormatException(value);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(value);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    static double parseDouble(final CharSequence value) {
+
+        int length = value.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            index++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean anyDigit = false;
+        for (; index < length; index++) {
+            char c = value.charAt(index);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_EXACT_DIGITS) {
+                        return parseDoubleSlow(value);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                // exponent, NaN, infinity or an invalid value
+                return parseDoubleSlow(value);
+            }
+        }
+
+        if (!anyDigit || scale >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(value);
+        }
+
+        // both operands are exact, so the result is correctly rounded
+        double result = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -result : result;
+    }
+
+    private static double parseDoubleSlow(final CharSequence value) {
+        String text = value.toString();
+        if (INFINITY.equals(text)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (("-" + INFINITY).equals(text)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(text);
+    }
+
+    static BigDecimal parseBigDecimal(final CharSequence value) {
+
+        int length = value.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            index++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; index < length; index++) {
+            char c = value.charAt(index);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_LONG_DIGITS) {
+                    return new BigDecimal(value.toString());
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return new BigDecimal(value.toString());
+            }
+        }
+
+        if (digits == 0) {
+            throw numberFormatException(value);
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    static boolean parseBoolean(final CSVField value, final CSVConfiguration configuration) {
+        if (value.contentEquals(configuration.getTrueValue())) {
+            return true;
+        }
+        if (value.contentEquals(configuration.getFalseValue())) {
+            return false;
+        }
+        throw new IllegalArgumentException("Not a boolean value: \"" + value + "\"");
+    }
+
+    static Date parseDate(final CharSequence value, final CSVConfiguration configuration) {
+        return new Date(configuration.getDateFieldFormatter().parse(value));
+    }
+
+    static java.sql.Date parseSqlDate(final CharSequence value, final CSVConfiguration configuration) {
+        return new java.sql.Date(configuration.getSqlDateFieldFormatter().parse(value));
+    }
+
+    static Time parseTime(final CharSequence value, final CSVConfiguration configuration) {
+        return new Time(configuration.getTimeFieldFormatter().parse(value));
+    }
+
+    static Timestamp parseTimestamp(final CharSequence value, final CSVConfiguration configuration) {
+        return new Timestamp(configuration.getTimestampFieldFormatter().parse(value));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@link CSVObject} backed by a region of a (usually memory-mapped) {@link ByteBuffer}. Only the offsets of the
+ * fields are stored: the content of a field is decoded each time it is requested. The same instance can be reused
+ * for several records by means of {@link #reset(ByteBuffer, int[], int)}.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+final class MappedCSVObject extends CSVObject {
+
+    private final CSVByteTokenizer tokenizer;
+    private final Charset charset;
+    private ByteBuffer buffer;
+    private int[] offsets;
+    private int size;
+
+    MappedCSVObject(final ByteBuffer buffer, final int[] offsets, final int size, final CSVByteTokenizer tokenizer,
+                    final Charset charset) {
+        super(tokenizer.getConfiguration());
+        this.tokenizer = tokenizer;
+        this.charset = charset;
+        reset(buffer, offsets, size);
+    }
+
+    /**
+     * Binds this object to another record.
+     */
+    void reset(final ByteBuffer newBuffer, final int[] newOffsets, final int newSize) {
+        this.buffer = newBuffer;
+        this.offsets = newOffsets;
+        this.size = newSize;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= getSize()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getSize());
+        }
+    }
+
+    @Override
+    public String get(final int index) throws IndexOutOfBoundsException {
+
+        checkIndex(index);
+
+        int start = offsets[index * 2];
+        int end = offsets[index * 2 + 1];
+        boolean escaped = (end & CSVByteTokenizer.ESCAPED_FLAG) != 0;
+        end &= ~CSVByteTokenizer.ESCAPED_FLAG;
+
+        int length = end - start;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        if (escaped) {
+            // the tokenizer is only used for its immutable configuration, so sharing it is safe
+            length = tokenizer.unescape(bytes, length);
+        }
+        return new String(bytes, 0, length, charset);
+    }
+
+    @Override
+    public CSVField getField(final int index, final CSVField field) throws IndexOutOfBoundsException {
+
+        checkIndex(index);
+
+        int start = offsets[index * 2];
+        int end = offsets[index * 2 + 1];
+        if ((end & CSVByteTokenizer.ESCAPED_FLAG) == 0 && isAscii(start, end)) {
+            return field.wrapAscii(buffer, start, end);
+        }
+        return field.copyOf(get(index));
+    }
+
+    private boolean isAscii(final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of a file mapped into memory. The file is mapped in windows of a fixed size; when a record
+ * crosses the end of a window, the next window is mapped starting at the beginning of that record.
+ *
+ * <p>A reader may be restricted to a range of the file: it starts scanning at a given offset and returns only the
+ * records that start before the end of the range. The last record is read to completion even when it ends after
+ * the end of the range.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class MappedRecordReader implements RecordReader {
+
+    static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final boolean closeChannel;
+    private final CSVByteTokenizer tokenizer;
+    private final Charset charset;
+    private final long windowSize;
+    private final long fileSize;
+    private final long rangeEnd;
+    private final CSVMetricsListener listener;
+    private final SkippedLines skippedLines;
+    private final CSVRowFilter filter;
+    private final CSVField filterField = new CSVField();
+    private ColumnProjection projection;
+    // the view of the current record used to evaluate the filter
+    private MappedCSVObject filterRow;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private long lastRecordEnd;
+
+    MappedRecordReader(final CSVConfiguration configuration, final Path path, final Charset charset)
+            throws IOException {
+        this(configuration, path, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedRecordReader(final CSVConfiguration configuration, final Path path, final Charset charset,
+                       final long windowSize) throws IOException {
+        this(configuration, FileChannel.open(path, StandardOpenOption.READ), true, charset, windowSize, 0,
+                Long.MAX_VALUE, configuration.getProjection());
+    }
+
+    /**
+     * Creates a reader of a file that starts scanning at an offset, such as one recorded by a {@link CSVIndex}.
+     *
+     * @param configuration the CSV configuration
+     * @param path          the path of the file
+     * @param charset       the charset of the file
+     * @param offset        the offset where the scan starts
+     * @param projection    the resolved projection, or <code>null</code> to read all the columns
+     * @throws IOException if an I/O error occurs
+     */
+    MappedRecordReader(final CSVConfiguration configuration, final Path path, final Charset charset,
+                       final long offset, final ColumnProjection projection) throws IOException {
+        this(configuration, FileChannel.open(path, StandardOpenOption.READ), true, charset, DEFAULT_WINDOW_SIZE,
+                offset, Long.MAX_VALUE, projection);
+    }
+
+    /**
+     * Creates a reader for a range of a file. The channel is not closed by this reader.
+     *
+     * @param configuration the CSV configuration
+     * @param channel       the channel of the file
+     * @param charset       the charset of the file
+     * @param windowSize    the maximum size of each mapping
+     * @param rangeStart    the offset where the scan starts
+     * @param rangeEnd      the offset before which the returned records must start
+     * @param projection    the columns to return, which must be resolved unless the range starts at the header
+     * @throws IOException if an I/O error occurs
+     */
+    MappedRecordReader(final CSVConfiguration configuration, final FileChannel channel, final Charset charset,
+                       final long windowSize, final long rangeStart, final long rangeEnd,
+                       final ColumnProjection projection) throws IOException {
+        this(configuration, channel, false, charset, windowSize, rangeStart, rangeEnd, projection);
+    }
+
+    private MappedRecordReader(final CSVConfiguration configuration, final FileChannel channel,
+                               final boolean closeChannel, final Charset charset, final long windowSize,
+                               final long rangeStart, final long rangeEnd, final ColumnProjection projection)
+            throws IOException {
+        this.tokenizer = new CSVByteTokenizer(configuration);
+        this.charset = charset;
+        this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.fileSize = channel.size();
+        this.rangeEnd = rangeEnd;
+        this.lastRecordEnd = rangeStart;
+        this.listener = configuration.getMetricsListener();
+        this.skippedLines = listener == null ? null : new SkippedLines(listener, configuration.getCommentChar());
+        this.filter = configuration.getFilter();
+        this.projection = projection;
+        if (projection != null && projection.isResolved()) {
+            tokenizer.setProjection(projection);
+        }
+        map(Math.min(rangeStart, fileSize));
+    }
+
+    /**
+     * Returns the offset just after the first line feed found at or after the given offset.
+     *
+     * @param channel the channel of the file
+     * @param offset  the offset where the search starts
+     * @return the offset of the beginning of the next line or {@code Long.MAX_VALUE} if there are no more lines
+     * @throws IOException if an I/O error occurs
+     */
+    static long nextLineStart(final FileChannel channel, final long offset) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return Long.MAX_VALUE;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the offset where the scan of the last returned record ended or, if no record has been returned yet,
+     * the offset where the scan started.
+     */
+    long getLastRecordEnd() {
+        return lastRecordEnd;
+    }
+
+    @Override
+    public CSVObject next() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return new MappedCSVObject(window, tokenizer.copyOffsets(), tokenizer.getSize(), tokenizer, charset);
+    }
+
+    @Override
+    public void forEach(final CSVRowVisitor visitor) throws IOException {
+        MappedCSVObject row = null;
+        while (advance()) {
+            if (row == null) {
+                row = new MappedCSVObject(window, tokenizer.getOffsets(), tokenizer.getSize(), tokenizer, charset);
+            } else {
+                row.reset(window, tokenizer.getOffsets(), tokenizer.getSize());
+            }
+            visitor.visit(row);
+        }
+    }
+
+    /**
+     * Reads the header when the columns are selected by name and it hasn't been read yet. The readers of the
+     * following ranges of the file must receive the returned projection.
+     *
+     * @return the projection of this reader, or <code>null</code> if all the columns are read
+     * @throws IOException if an I/O error occurs or the header doesn't contain the selected columns
+     */
+    ColumnProjection readHeader() throws IOException {
+        if (projection != null && !projection.isResolved() && nextRecord()) {
+            projection = projection.resolve(new MappedCSVObject(window, tokenizer.getOffsets(), tokenizer.getSize(),
+                    tokenizer, charset));
+            tokenizer.setProjection(projection);
+        }
+        return projection;
+    }
+
+    /**
+     * Moves past the next record without evaluating the filter or creating an object.
+     *
+     * @return <code>false</code> when there are no more records
+     * @throws IOException if an I/O error occurs
+     */
+    boolean skipRecord() throws IOException {
+        readHeader();
+        return nextRecord();
+    }
+
+    /**
+     * Moves to the next record matching the filter.
+     */
+    private boolean advance() throws IOException {
+        readHeader();
+        while (nextRecord()) {
+            if (filter == null || matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches() {
+        if (filterRow == null) {
+            filterRow = new MappedCSVObject(window, tokenizer.getOffsets(), tokenizer.getSize(), tokenizer, charset);
+        } else {
+            filterRow.reset(window, tokenizer.getOffsets(), tokenizer.getSize());
+        }
+        return filter.test(filterRow, filterField);
+    }
+
+    private boolean nextRecord() throws IOException {
+
+        while (true) {
+            int limit = window.limit();
+            boolean eof = windowStart + limit >= fileSize;
+            long startTime = listener == null ? 0 : System.nanoTime();
+            int end = tokenizer.next(window, position, limit, eof);
+            if (end >= 0) {
+                if (tokenizer.getSize() == 0 || windowStart + tokenizer.getRecordStart() >= rangeEnd) {
+                    if (tokenizer.getSize() == 0) {
+                        if (listener != null) {
+                            // the lines after the last record
+                            skippedLines.scan(window, position, end);
+                            skippedLines.report();
+                        }
+                        position = end;
+                    }
+                    return false;
+                }
+                if (listener != null) {
+                    long parseNanos = System.nanoTime() - startTime;
+                    skippedLines.scan(window, position, tokenizer.getRecordStart());
+                    skippedLines.record();
+                    listener.bytesRead(end - position, 0);
+                    listener.rowRead(parseNanos);
+                }
+                position = end;
+                lastRecordEnd = windowStart + end;
+                return true;
+            }
+
+            if (position == 0) {
+                throw new IOException(String.format("Record at offset %d is larger than the mapping window (%d)",
+                        windowStart, windowSize));
+            }
+            map(windowStart + position);
+        }
+    }
+}
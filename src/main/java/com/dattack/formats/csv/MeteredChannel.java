@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A channel that reports to a {@link CSVMetricsListener} the bytes read from or written to another channel and the
+ * time blocked doing it. The gathering writes are delegated when the other channel supports them.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class MeteredChannel implements ReadableByteChannel, GatheringByteChannel {
+
+    private final ReadableByteChannel source;
+    private final WritableByteChannel destination;
+    private final CSVMetricsListener listener;
+
+    private MeteredChannel(final ReadableByteChannel source, final WritableByteChannel destination,
+                           final CSVMetricsListener listener) {
+        this.source = source;
+        this.destination = destination;
+        this.listener = listener;
+    }
+
+    static MeteredChannel reading(final ReadableByteChannel source, final CSVMetricsListener listener) {
+        return new MeteredChannel(source, null, listener);
+    }
+
+    static MeteredChannel writing(final WritableByteChannel destination, final CSVMetricsListener listener) {
+        return new MeteredChannel(null, destination, listener);
+    }
+
+    @Override
+    public int read(final ByteBuffer buffer) throws IOException {
+        long startTime = System.nanoTime();
+        int count = source.read(buffer);
+        listener.bytesRead(Math.max(count, 0), System.nanoTime() - startTime);
+        return count;
+    }
+
+    @Override
+    public int write(final ByteBuffer buffer) throws IOException {
+        long startTime = System.nanoTime();
+        int count = destination.write(buffer);
+        listener.bytesWritten(count, System.nanoTime() - startTime);
+        return count;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] buffers, final int offset, final int length) throws IOException {
+
+        long startTime = System.nanoTime();
+        long count;
+        if (destination instanceof GatheringByteChannel) {
+            count = ((GatheringByteChannel) destination).write(buffers, offset, length);
+        } else {
+            count = 0;
+            for (int i = offset; i < offset + length; i++) {
+                while (buffers[i].hasRemaining()) {
+                    count += destination.write(buffers[i]);
+                }
+            }
+        }
+        listener.bytesWritten(count, System.nanoTime() - startTime);
+        return count;
+    }
+
+    @Override
+    public long write(final ByteBuffer[] buffers) throws IOException {
+        return write(buffers, 0, buffers.length);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return source == null ? destination.isOpen() : source.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (source == null) {
+            destination.close();
+        } else {
+            source.close();
+        }
+    }
+}
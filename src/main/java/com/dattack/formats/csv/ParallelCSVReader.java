@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Reads a single CSV file using several threads. The file is split into chunks of bytes aligned to the beginning of
+ * a line and each chunk is parsed on a {@link ForkJoinPool}.
+ *
+ * <p>The chunks are parsed speculatively, assuming that they start at the beginning of a record. Once the previous
+ * chunk has been parsed, the assumption is verified: if the previous chunk ended inside a quoted field containing a
+ * line break, the chunk is parsed again starting at the real end of that record. So the result is always the same
+ * as the one obtained with {@link CSVReader}, and the files without quoted line breaks are parsed fully in
+ * parallel.</p>
+ *
+ * <p>When the configuration isn't supported by the byte-level tokenizer (see
+ * {@link CSVConfiguration.CsvConfigurationBuilder#withMemoryMapped(boolean)}) or the file is compressed, the file is
+ * read sequentially.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public class ParallelCSVReader {
+
+    private static final long DEFAULT_CHUNK_SIZE = 32L << 20;
+
+    private static final int MIN_WINDOW_SIZE = 8 * 1024;
+
+    private final CSVConfiguration configuration;
+    private final File dataFile;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public ParallelCSVReader(final CSVConfiguration configuration, final File dataFile) {
+        this(configuration, dataFile, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a parallel reader.
+     *
+     * @param configuration the CSV configuration
+     * @param dataFile      the file to read
+     * @param pool          the pool used to parse the chunks
+     * @param chunkSize     the approximate size, in bytes, of each chunk
+     */
+    public ParallelCSVReader(final CSVConfiguration configuration, final File dataFile, final ForkJoinPool pool,
+                             final long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than zero");
+        }
+        this.configuration = Objects.requireNonNull(configuration);
+        this.dataFile = Objects.requireNonNull(dataFile);
+        this.pool = Objects.requireNonNull(pool);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Performs an action for each object of the file, in the order in which they appear in the file. The action is
+     * always executed by the calling thread.
+     *
+     * @param action the action to perform
+     * @throws IOException if an I/O error occurs
+     */
+    public void forEachOrdered(final Consumer<? super CSVObject> action) throws IOException {
+        read(action, true);
+    }
+
+    /**
+     * Performs an action for each object of the file, with no guarantee about the order. The action may be executed
+     * concurrently by the threads of the pool, so it must be thread-safe.
+     *
+     * @param action the action to perform
+     * @throws IOException if an I/O error occurs
+     */
+    public void forEach(final Consumer<? super CSVObject> action) throws IOException {
+        read(action, false);
+    }
+
+    private void read(final Consumer<? super CSVObject> action, final boolean ordered) throws IOException {
+
+        if (!CSVByteTokenizer.isSupported(configuration)
+                || dataFile.getName().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            readSequentially(action);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+            ColumnProjection projection = configuration.getProjection();
+            long dataStart = 0;
+            if (projection != null && !projection.isResolved()) {
+                // the header is read once, before splitting the rest of the file
+                try (MappedRecordReader header = new MappedRecordReader(configuration, channel,
+                        configuration.getCharset(), MappedRecordReader.DEFAULT_WINDOW_SIZE, 0, Long.MAX_VALUE,
+                        projection)) {
+                    projection = header.readHeader();
+                    dataStart = header.getLastRecordEnd();
+                }
+            }
+
+            final ColumnProjection resolvedProjection = projection;
+            long[] bounds = split(channel, dataStart);
+            int maxPending = Math.max(2, pool.getParallelism() * 2);
+            Deque<CompletableFuture<?>> pending = new ArrayDeque<>();
+
+            CompletableFuture<Chunk> previous = CompletableFuture.completedFuture(Chunk.EMPTY);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                if (pending.size() >= maxPending) {
+                    await(pending.poll(), action, ordered);
+                }
+
+                final long start = bounds[i];
+                final long end = bounds[i + 1];
+                // a speculative chunk may start inside a quoted field, so its failure only matters if it is used
+                CompletableFuture<Chunk> speculative = CompletableFuture.supplyAsync( //
+                        () -> parse(channel, resolvedProjection, start, end), pool) //
+                        .handle((chunk, error) -> error == null ? chunk : Chunk.failed(error));
+                CompletableFuture<Chunk> current = speculative.thenCombineAsync(previous,
+                        (chunk, previousChunk) -> previousChunk.resume < start ? chunk.get()
+                                : parse(channel, resolvedProjection, previousChunk.resume, end), pool);
+
+                if (ordered) {
+                    pending.add(current);
+                } else {
+                    pending.add(current.thenAcceptAsync(chunk -> chunk.rows.forEach(action), pool));
+                }
+                previous = current;
+            }
+
+            while (!pending.isEmpty()) {
+                await(pending.poll(), action, ordered);
+            }
+        }
+    }
+
+    private static void await(final CompletableFuture<?> future, final Consumer<? super CSVObject> action,
+                              final boolean ordered) throws IOException {
+        try {
+            Object result = future.join();
+            if (ordered) {
+                ((Chunk) result).rows.forEach(action);
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void readSequentially(final Consumer<? super CSVObject> action) throws IOException {
+        try (CSVReader reader = new CSVReader(configuration, dataFile)) {
+            CSVObject csvObject;
+            while ((csvObject = reader.next()) != null) {
+                action.accept(csvObject);
+            }
+        }
+    }
+
+    private Chunk parse(final FileChannel channel, final ColumnProjection projection, final long start,
+                        final long end) {
+
+        if (start >= end) {
+            return new Chunk(Collections.emptyList(), start);
+        }
+
+        try (MappedRecordReader reader = new MappedRecordReader(configuration, channel, configuration.getCharset(),
+                Math.min(MappedRecordReader.DEFAULT_WINDOW_SIZE, 2 * (end - start) + MIN_WINDOW_SIZE), start,
+                end, projection)) {
+            List<CSVObject> rows = new ArrayList<>();
+            CSVObject csvObject;
+            while ((csvObject = reader.next()) != null) {
+                rows.add(csvObject);
+            }
+            return new Chunk(rows, reader.getLastRecordEnd());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the bounds of the chunks. Each chunk, except the first one, starts just after a line feed.
+     *
+     * @param dataStart the offset where the first chunk starts
+     */
+    private long[] split(final FileChannel channel, final long dataStart) throws IOException {
+
+        long fileSize = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long offset = dataStart + chunkSize;
+        while (offset < fileSize) {
+            long start = MappedRecordReader.nextLineStart(channel, offset);
+            if (start >= fileSize) {
+                break;
+            }
+            bounds.add(start);
+            offset = Math.max(start, offset) + chunkSize;
+        }
+        bounds.add(fileSize);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * The objects of a chunk and the offset where the next chunk must start to be parsed, or the error thrown while
+     * parsing it.
+     */
+    private static final class Chunk {
+
+        private static final Chunk EMPTY = new Chunk(Collections.emptyList(), -1, null);
+
+        private final List<CSVObject> rows;
+        private final long resume;
+        private final Throwable error;
+
+        private Chunk(final List<CSVObject> rows, final long resume) {
+            this(rows, resume, null);
+        }
+
+        private Chunk(final List<CSVObject> rows, final long resume, final Throwable error) {
+            this.rows = rows;
+            this.resume = resume;
+            this.error = error;
+        }
+
+        private static Chunk failed(final Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                    : error;
+            return new Chunk(Collections.emptyList(), -1, cause);
+        }
+
+        /**
+         * Returns this chunk or throws the error thrown while parsing it.
+         */
+        private Chunk get() {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            if (error != null) {
+                throw new CompletionException(error);
+            }
+            return this;
+        }
+    }
+}
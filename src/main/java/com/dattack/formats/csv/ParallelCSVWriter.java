@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Writes CSV rows using several threads. The rows are grouped into blocks and each block is encoded on a
+ * {@link ForkJoinPool} by its own {@link CSVStringBuilder}; the encoded blocks are written in the order in which the
+ * rows were published, so the output is the same as the one of {@link CSVWriter}. When the destination is an
+ * {@link OutputStream}, the conversion of the characters into bytes is also done by the pool.
+ *
+ * <p>The number of blocks being encoded is limited to twice the parallelism of the pool: when the limit is reached,
+ * {@link #write(Object...)} waits for the oldest block and writes it. This class is not thread-safe; the rows must be
+ * published by a single thread.</p>
+ *
+ * <p>The values are written using the {@code append} method of their class: strings, numbers, booleans and dates
+ * are supported, and the objects of other classes are written as strings.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+@SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+public class ParallelCSVWriter implements Closeable, Flushable {
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final CSVConfiguration configuration;
+    private final Writer writer;
+    private final OutputStream outputStream;
+    private final Charset charset;
+    private final ForkJoinPool pool;
+    private final int blockSize;
+    private final int maxPending;
+    private final Deque<CompletableFuture<Object>> pending = new ArrayDeque<>();
+
+    private Object[][] block;
+    private int blockLength;
+    // the length of the last encoded block, used to size the buffer of the next one
+    private volatile int lastEncodedLength;
+
+    public ParallelCSVWriter(final CSVConfiguration configuration, final Writer writer) {
+        this(configuration, writer, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelCSVWriter(final CSVConfiguration configuration, final OutputStream outputStream) {
+        this(configuration, outputStream, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a parallel writer. The writer is closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param writer        the destination of the data
+     * @param pool          the pool used to encode the blocks
+     * @param blockSize     the number of rows of each block
+     */
+    public ParallelCSVWriter(final CSVConfiguration configuration, final Writer writer, final ForkJoinPool pool,
+                             final int blockSize) {
+        this(configuration, Objects.requireNonNull(writer), null, pool, blockSize);
+    }
+
+    /**
+     * Constructs a parallel writer that encodes the data using the charset of the configuration. The stream is
+     * closed when this object is closed.
+     *
+     * @param configuration the CSV configuration
+     * @param outputStream  the destination of the data
+     * @param pool          the pool used to encode the blocks
+     * @param blockSize     the number of rows of each block
+     */
+    public ParallelCSVWriter(final CSVConfiguration configuration, final OutputStream outputStream,
+                             final ForkJoinPool pool, final int blockSize) {
+        this(configuration, null, Objects.requireNonNull(outputStream), pool, blockSize);
+    }
+
+    private ParallelCSVWriter(final CSVConfiguration configuration, final Writer writer,
+                              final OutputStream outputStream, final ForkJoinPool pool, final int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size must be greater than zero");
+        }
+        this.configuration = Objects.requireNonNull(configuration);
+        this.writer = writer;
+        this.outputStream = outputStream;
+        this.charset = configuration.getCharset();
+        this.pool = Objects.requireNonNull(pool);
+        this.blockSize = blockSize;
+        this.maxPending = Math.max(2, pool.getParallelism() * 2);
+        this.block = new Object[blockSize][];
+    }
+
+    /**
+     * Publishes a row to be written. The values are copied, so the array can be reused by the caller.
+     *
+     * @param values the values of the row
+     * @throws IOException if an I/O error occurs while writing a previous block
+     */
+    public void write(final Object... values) throws IOException {
+
+        block[blockLength++] = values.clone();
+        if (blockLength == blockSize) {
+            submit();
+        }
+    }
+
+    private void submit() throws IOException {
+
+        if (blockLength == 0) {
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            writeBlock(pending.poll());
+        }
+
+        final Object[][] rows = block;
+        final int length = blockLength;
+        pending.add(CompletableFuture.supplyAsync(() -> encode(rows, length), pool));
+        block = new Object[blockSize][];
+        blockLength = 0;
+    }
+
+    private Object encode(final Object[][] rows, final int length) {
+
+        CSVStringBuilder builder = new CSVStringBuilder(configuration, Math.max(16, lastEncodedLength));
+        for (int i = 0; i < length; i++) {
+            for (Object value : rows[i]) {
+                builder.appendObject(value);
+            }
+            builder.eol();
+        }
+        StringBuilder buffer = builder.getBuffer();
+        lastEncodedLength = buffer.length() + buffer.length() / 8;
+        if (outputStream == null) {
+            return buffer.toString();
+        }
+        return buffer.toString().getBytes(charset);
+    }
+
+    private void writeBlock(final CompletableFuture<Object> future) throws IOException {
+
+        Object encoded;
+        try {
+            encoded = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        if (outputStream == null) {
+            writer.write((String) encoded);
+        } else {
+            outputStream.write((byte[]) encoded);
+        }
+    }
+
+    /**
+     * Writes the published rows, in order, and flushes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+
+        submit();
+        while (!pending.isEmpty()) {
+            writeBlock(pending.poll());
+        }
+        if (outputStream == null) {
+            writer.flush();
+        } else {
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Writes the published rows, in order, and closes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            pending.clear();
+            if (outputStream == null) {
+                writer.close();
+            } else {
+                outputStream.close();
+            }
+        }
+    }
+}
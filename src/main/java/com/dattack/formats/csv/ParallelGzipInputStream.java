@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * An input stream that decompresses GZIP data. The members written by {@link ParallelGzipOutputStream} store their
+ * compressed size, so they are read whole and decompressed in parallel on a {@link ForkJoinPool}, up to twice the
+ * parallelism of the pool ahead of the reader. The data is always returned in order.
+ *
+ * <p>Any other GZIP data is decompressed sequentially by a {@link GZIPInputStream}, starting at the first member
+ * without the size, so this class can be used to read any GZIP file. This class is not thread-safe.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    private static final int FIXED_HEADER_LENGTH = 10;
+
+    private static final int SEQUENTIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final ForkJoinPool pool;
+    private final int maxPending;
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean endOfMembers;
+    private boolean memberRead;
+    // the decompression of the members that don't store their size
+    private InputStream sequential;
+    private boolean closed;
+
+    /**
+     * Constructs a stream that decompresses the members using the common pool.
+     *
+     * @param in the compressed data
+     */
+    public ParallelGzipInputStream(final InputStream in) {
+        this(in, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a stream. The source is closed when this stream is closed.
+     *
+     * @param in   the compressed data
+     * @param pool the pool used to decompress the members
+     */
+    public ParallelGzipInputStream(final InputStream in, final ForkJoinPool pool) {
+        this.in = Objects.requireNonNull(in);
+        this.pool = Objects.requireNonNull(pool);
+        this.maxPending = Math.max(2, pool.getParallelism() * 2);
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        if (position == current.length && !nextChunk()) {
+            return sequential == null ? -1 : sequential.read();
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+
+        if (offset < 0 || length < 0 || length > buffer.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (position == current.length && !nextChunk()) {
+            return sequential == null ? -1 : sequential.read(buffer, offset, length);
+        }
+
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (position < current.length) {
+            return current.length - position;
+        }
+        return sequential == null ? 0 : sequential.available();
+    }
+
+    /**
+     * Moves to the next decompressed member.
+     *
+     * @return <code>false</code> if there are no more members to decompress in parallel
+     */
+    private boolean nextChunk() throws IOException {
+
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        do {
+            while (!endOfMembers && pending.size() < maxPending) {
+                readMember();
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            current = join(pending.poll());
+            position = 0;
+        } while (current.length == 0);
+        return true;
+    }
+
+    private static byte[] join(final CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next member and submits its decompression, or switches to the sequential decompression when the
+     * member doesn't store its size.
+     */
+    private void readMember() throws IOException {
+
+        byte[] header = new byte[ParallelGzipOutputStream.HEADER_LENGTH];
+        int headerLength = readFully(header, 0, FIXED_HEADER_LENGTH);
+        if (headerLength == 0 || memberRead && !hasMagic(header, headerLength)) {
+            // end of the data, or trailing bytes that aren't a member, which are ignored as GZIPInputStream does
+            endOfMembers = true;
+            return;
+        }
+
+        int memberLength = 0;
+        if (headerLength == FIXED_HEADER_LENGTH && hasMagic(header, headerLength)
+                && header[3] == ParallelGzipOutputStream.FLAG_EXTRA) {
+            headerLength += readFully(header, headerLength, ParallelGzipOutputStream.HEADER_LENGTH - headerLength);
+            if (headerLength == ParallelGzipOutputStream.HEADER_LENGTH
+                    && header[10] == ParallelGzipOutputStream.EXTRA_LENGTH && header[11] == 0
+                    && header[12] == ParallelGzipOutputStream.SUBFIELD_ID1
+                    && header[13] == ParallelGzipOutputStream.SUBFIELD_ID2 && header[14] == 4 && header[15] == 0) {
+                memberLength = readInt(header, 16);
+            }
+        }
+
+        if (memberLength == 0) {
+            endOfMembers = true;
+            InputStream unread = new ByteArrayInputStream(Arrays.copyOf(header, headerLength));
+            sequential = new GZIPInputStream(new SequenceInputStream(unread, in), SEQUENTIAL_BUFFER_SIZE);
+            return;
+        }
+
+        if (memberLength < ParallelGzipOutputStream.HEADER_LENGTH + ParallelGzipOutputStream.TRAILER_LENGTH
+                || memberLength > ParallelGzipOutputStream.MAX_BLOCK_SIZE * 2) {
+            throw new ZipException("Invalid GZIP member size: " + memberLength);
+        }
+        final byte[] data = new byte[memberLength - ParallelGzipOutputStream.HEADER_LENGTH];
+        if (readFully(data, 0, data.length) < data.length) {
+            throw new EOFException("Unexpected end of GZIP member");
+        }
+        pending.add(CompletableFuture.supplyAsync(() -> decompress(data), pool));
+        memberRead = true;
+    }
+
+    private static boolean hasMagic(final byte[] header, final int length) {
+        return length >= 3 && header[0] == (byte) 0x1f && header[1] == (byte) 0x8b && header[2] == 8;
+    }
+
+    private int readFully(final byte[] buffer, final int offset, final int length) throws IOException {
+
+        int total = 0;
+        while (total < length) {
+            int count = in.read(buffer, offset + total, length - total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private static int readInt(final byte[] buffer, final int offset) {
+        return buffer[offset] & 0xff | (buffer[offset + 1] & 0xff) << 8 | (buffer[offset + 2] & 0xff) << 16
+                | (buffer[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Decompresses the deflated data and the trailer of a member.
+     */
+    private static byte[] decompress(final byte[] data) {
+
+        int compressedLength = data.length - ParallelGzipOutputStream.TRAILER_LENGTH;
+        int size = readInt(data, compressedLength + 4);
+        if (size < 0 || size > ParallelGzipOutputStream.MAX_BLOCK_SIZE) {
+            throw new UncheckedIOException(new ZipException("Invalid GZIP member size: " + size));
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, 0, compressedLength);
+            byte[] result = new byte[size];
+            int length = 0;
+            while (length < size) {
+                int count = inflater.inflate(result, length, size - length);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += count;
+            }
+            if (!inflater.finished()) {
+                // the end of the deflated data may need another call once the output is complete
+                inflater.inflate(new byte[1]);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(result, 0, length);
+            if (!inflater.finished() || length != size || (int) crc.getValue() != readInt(data, compressedLength)) {
+                throw new UncheckedIOException(new ZipException("Corrupt GZIP member"));
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new ZipException(e.getMessage()));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.clear();
+        if (sequential == null) {
+            in.close();
+        } else {
+            sequential.close();
+        }
+    }
+}
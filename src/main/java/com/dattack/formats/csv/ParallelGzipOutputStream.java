@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that compresses the data in the GZIP format using several threads. The data is split into blocks
+ * and each block is compressed on a {@link ForkJoinPool} as an independent member of a multi-member GZIP stream, so
+ * the result can be decompressed by any GZIP tool. The compressed size of each member is stored in an extra field of
+ * its header, which allows {@link ParallelGzipInputStream} to decompress the members in parallel too.
+ *
+ * <p>The number of blocks being compressed is limited to twice the parallelism of the pool. Each call to
+ * {@link #flush()} ends the current member, so frequent flushes reduce the compression ratio. This class is not
+ * thread-safe.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /** The maximum size of the uncompressed data of a member. */
+    static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    // header: magic, CM, FLG, MTIME, XFL, OS, XLEN and the extra subfield with the size of the member
+    static final int HEADER_LENGTH = 20;
+
+    static final int TRAILER_LENGTH = 8;
+
+    static final int FLAG_EXTRA = 4;
+
+    static final int EXTRA_LENGTH = 8;
+
+    static final byte SUBFIELD_ID1 = 'D';
+
+    static final byte SUBFIELD_ID2 = 'K';
+
+    private static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int OS_UNKNOWN = 255;
+
+    private final OutputStream out;
+    private final ForkJoinPool pool;
+    private final int blockSize;
+    private final int level;
+    private final int maxPending;
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;
+    private int blockLength;
+    private boolean empty = true;
+    private boolean closed;
+
+    /**
+     * Constructs a stream that compresses blocks of 128 KiB with the default compression level, using the common
+     * pool.
+     *
+     * @param out the destination of the compressed data
+     */
+    public ParallelGzipOutputStream(final OutputStream out) {
+        this(out, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs a stream. The destination is closed when this stream is closed.
+     *
+     * @param out       the destination of the compressed data
+     * @param pool      the pool used to compress the blocks
+     * @param blockSize the size of the uncompressed data of each member, up to 64 MiB
+     * @param level     the compression level (0-9), or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ParallelGzipOutputStream(final OutputStream out, final ForkJoinPool pool, final int blockSize,
+                                    final int level) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.out = Objects.requireNonNull(out);
+        this.pool = Objects.requireNonNull(pool);
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxPending = Math.max(2, pool.getParallelism() * 2);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+
+        ensureOpen();
+        block[blockLength++] = (byte) value;
+        if (blockLength == blockSize) {
+            submit();
+        }
+    }
+
+    @Override
+    public void write(final byte[] data, final int offset, final int length) throws IOException {
+
+        ensureOpen();
+        if (offset < 0 || length < 0 || length > data.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int position = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            int count = Math.min(remaining, blockSize - blockLength);
+            System.arraycopy(data, position, block, blockLength, count);
+            blockLength += count;
+            position += count;
+            remaining -= count;
+            if (blockLength == blockSize) {
+                submit();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submit() throws IOException {
+
+        if (blockLength == 0) {
+            return;
+        }
+        if (pending.size() >= maxPending) {
+            writeMember(pending.poll());
+        }
+
+        final byte[] data = block;
+        final int length = blockLength;
+        pending.add(CompletableFuture.supplyAsync(() -> compress(data, length, level), pool));
+        block = new byte[blockSize];
+        blockLength = 0;
+        empty = false;
+    }
+
+    private void writeMember(final CompletableFuture<byte[]> future) throws IOException {
+
+        byte[] member;
+        try {
+            member = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        out.write(member);
+    }
+
+    /**
+     * Compresses a block as a complete GZIP member.
+     */
+    static byte[] compress(final byte[] data, final int length, final int level) {
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            byte[] member = new byte[HEADER_LENGTH + length / 2 + 64 + TRAILER_LENGTH];
+            int size = HEADER_LENGTH;
+            while (!deflater.finished()) {
+                if (size == member.length - TRAILER_LENGTH) {
+                    member = Arrays.copyOf(member, member.length * 2);
+                }
+                size += deflater.deflate(member, size, member.length - TRAILER_LENGTH - size);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeInt(member, size, (int) crc.getValue());
+            writeInt(member, size + 4, length);
+            size += TRAILER_LENGTH;
+
+            member[0] = (byte) 0x1f;
+            member[1] = (byte) 0x8b;
+            member[2] = Deflater.DEFLATED;
+            member[3] = FLAG_EXTRA;
+            // MTIME and XFL are zero
+            member[9] = (byte) OS_UNKNOWN;
+            member[10] = EXTRA_LENGTH;
+            member[12] = SUBFIELD_ID1;
+            member[13] = SUBFIELD_ID2;
+            member[14] = 4;
+            writeInt(member, 16, size);
+            return size == member.length ? member : Arrays.copyOf(member, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeInt(final byte[] buffer, final int offset, final int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * Compresses the buffered data as a new member, writes all the pending members and flushes the destination.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+
+        ensureOpen();
+        submit();
+        while (!pending.isEmpty()) {
+            writeMember(pending.poll());
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining data and closes the destination. An empty member is written when no data has been written,
+     * so the result is always a valid GZIP stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+            return;
+        }
+        try {
+            submit();
+            if (empty) {
+                out.write(compress(block, 0, level));
+            }
+            while (!pending.isEmpty()) {
+                writeMember(pending.poll());
+            }
+            out.flush();
+        } finally {
+            closed = true;
+            pending.clear();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Strategy used by {@link CSVReader} to obtain the records of a data source.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+interface RecordReader extends Closeable {
+
+    /**
+     * Returns the next record of the data source, skipping blank and comment lines.
+     *
+     * @return the next record or <code>null</code> if no one exists
+     * @throws IOException if an I/O error occurs
+     */
+    CSVObject next() throws IOException;
+
+    /**
+     * Visits the remaining records of the data source, reusing the same object for all of them.
+     *
+     * @param visitor the visitor
+     * @throws IOException if an I/O error occurs
+     */
+    void forEach(CSVRowVisitor visitor) throws IOException;
+}
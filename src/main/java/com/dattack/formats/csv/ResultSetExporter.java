@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.JDBCType;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+import java.sql.Struct;
+import java.sql.Types;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports the rows of a {@link ResultSet} as CSV data. The metadata is read once to choose, for each column, the
+ * getter of its type: the numeric and boolean columns are read with the primitive getters and
+ * {@link ResultSet#wasNull()}, and are written without creating wrapper objects. The binary columns are written
+ * in hexadecimal or Base64 (see {@link #withBinaryEncoding(BinaryEncoding)}) and the LOBs are freed once read; the
+ * arrays, structured types, references and datalinks are rejected before reading any row.
+ *
+ * <p>The rows are fetched by the calling thread in batches, while the previous batch is being encoded by a background
+ * thread, so the latency of the database and the encoding overlap. The result set is only used by the calling
+ * thread.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+public class ResultSetExporter {
+
+    /**
+     * The text written for the values of the binary columns.
+     */
+    public enum BinaryEncoding {
+
+        /** Two lowercase hexadecimal digits per byte. */
+        HEX {
+            @Override
+            String encode(final byte[] value) {
+                char[] text = new char[value.length * 2];
+                for (int i = 0; i < value.length; i++) {
+                    text[2 * i] = HEX_DIGITS[(value[i] >> 4) & 0xF];
+                    text[2 * i + 1] = HEX_DIGITS[value[i] & 0xF];
+                }
+                return new String(text);
+            }
+        },
+
+        /** The Base64 encoding of RFC 4648, without line breaks. */
+        BASE64 {
+            @Override
+            String encode(final byte[] value) {
+                return Base64.getEncoder().encodeToString(value);
+            }
+        };
+
+        abstract String encode(byte[] value);
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private boolean header;
+    private int fetchSize;
+    private int batchSize;
+    private BinaryEncoding binaryEncoding;
+
+    /**
+     * Constructs an exporter without header, with a fetch size of 1000 rows, batches of 1024 rows and the binary
+     * values in hexadecimal. The format of the data is the configuration of the builder passed to
+     * {@link #export(ResultSet, CSVStringBuilder)}.
+     */
+    public ResultSetExporter() {
+        this.header = false;
+        this.fetchSize = DEFAULT_FETCH_SIZE;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.binaryEncoding = BinaryEncoding.HEX;
+    }
+
+    /**
+     * Sets whether the labels of the columns are written as the first row.
+     *
+     * @param value the value to set
+     * @return the instance of ResultSetExporter
+     */
+    public ResultSetExporter withHeader(final boolean value) {
+        this.header = value;
+        return this;
+    }
+
+    /**
+     * Sets the number of rows that the driver should fetch from the database at once. Zero leaves the value of the
+     * result set unchanged.
+     *
+     * @param value the value to set
+     * @return the instance of ResultSetExporter
+     */
+    public ResultSetExporter withFetchSize(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The fetch size must not be negative: " + value);
+        }
+        this.fetchSize = value;
+        return this;
+    }
+
+    /**
+     * Sets the number of rows fetched before they are handed to the encoding thread.
+     *
+     * @param value the value to set
+     * @return the instance of ResultSetExporter
+     */
+    public ResultSetExporter withBatchSize(final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("The batch size must be greater than zero: " + value);
+        }
+        this.batchSize = value;
+        return this;
+    }
+
+    /**
+     * Sets the encoding of the values of the BINARY, VARBINARY, LONGVARBINARY and BLOB columns.
+     *
+     * @param value the value to set
+     * @return the instance of ResultSetExporter
+     */
+    public ResultSetExporter withBinaryEncoding(final BinaryEncoding value) {
+        this.binaryEncoding = Objects.requireNonNull(value);
+        return this;
+    }
+
+    /**
+     * Writes the remaining rows of a result set. The result set isn't closed.
+     *
+     * @param resultSet the rows to export
+     * @param builder   the destination of the data, which must not be used by other threads during the export
+     * @return the number of rows written, not including the header
+     * @throws SQLException if a database access error occurs, a column has an unsupported type or the thread is
+     *                      interrupted
+     */
+    public long export(final ResultSet resultSet, final CSVStringBuilder builder) throws SQLException {
+
+        if (fetchSize > 0) {
+            resultSet.setFetchSize(fetchSize);
+        }
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        Batch first = new Batch(metaData, batchSize, binaryEncoding);
+        if (header) {
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                builder.append(metaData.getColumnLabel(i));
+            }
+            builder.eol();
+        }
+
+        Encoder encoder = new Encoder(builder);
+        // two batches: one is filled while the other is encoded
+        encoder.free.add(first);
+        encoder.free.add(new Batch(metaData, batchSize, binaryEncoding));
+        Thread thread = new Thread(encoder, "csv-export-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+
+        long rows = 0;
+        try {
+            while (true) {
+                Batch batch = encoder.free.take();
+                if (encoder.failure != null) {
+                    break;
+                }
+                batch.fill(resultSet);
+                if (batch.size > 0) {
+                    encoder.full.add(batch);
+                    rows += batch.size;
+                }
+                if (batch.size < batchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("The export has been interrupted", e);
+        } finally {
+            encoder.full.add(Batch.END);
+            join(thread);
+        }
+
+        if (encoder.failure != null) {
+            throw encoder.failure;
+        }
+        return rows;
+    }
+
+    private static void join(final Thread thread) {
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends the batches filled by the calling thread to the builder.
+     */
+    private static final class Encoder implements Runnable {
+
+        private final CSVStringBuilder builder;
+        // the capacity allows adding the two batches and the end mark without blocking
+        private final BlockingQueue<Batch> free = new ArrayBlockingQueue<>(3);
+        private final BlockingQueue<Batch> full = new ArrayBlockingQueue<>(3);
+        private volatile RuntimeException failure;
+
+        private Encoder(final CSVStringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                Batch batch;
+                while ((batch = full.take()) != Batch.END) {
+                    if (failure == null) {
+                        try {
+                            batch.appendTo(builder);
+                        } catch (RuntimeException e) {
+                            failure = e;
+                        }
+                    }
+                    free.add(batch);
+                }
+            } catch (InterruptedException e) {
+                failure = new IllegalStateException("The encoding thread has been interrupted", e);
+                free.add(Batch.END);
+            }
+        }
+    }
+
+    /**
+     * A group of rows stored by column.
+     */
+    private static final class Batch {
+
+        private static final Batch END = new Batch(new Column[0], 0);
+
+        private final Column[] columns;
+        private final int capacity;
+        private int size;
+
+        private Batch(final Column[] columns, final int capacity) {
+            this.columns = columns;
+            this.capacity = capacity;
+        }
+
+        private Batch(final ResultSetMetaData metaData, final int capacity, final BinaryEncoding binaryEncoding)
+                throws SQLException {
+            this(new Column[metaData.getColumnCount()], capacity);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Column.of(metaData.getColumnType(i + 1), i + 1, capacity, binaryEncoding);
+            }
+        }
+
+        private void fill(final ResultSet resultSet) throws SQLException {
+            size = 0;
+            while (size < capacity && resultSet.next()) {
+                for (Column column : columns) {
+                    column.read(resultSet, size);
+                }
+                size++;
+            }
+        }
+
+        private void appendTo(final CSVStringBuilder builder) {
+            for (int row = 0; row < size; row++) {
+                for (Column column : columns) {
+                    if (column.nulls[row]) {
+                        builder.append((String) null);
+                    } else {
+                        column.append(builder, row);
+                    }
+                }
+                builder.eol();
+            }
+            for (Column column : columns) {
+                column.clear(size);
+            }
+        }
+    }
+
+    /**
+     * The values of a column in a batch, read with the getter of its SQL type.
+     */
+    private abstract static class Column {
+
+        final int index;
+        final boolean[] nulls;
+
+        Column(final int index, final int capacity) {
+            this.index = index;
+            this.nulls = new boolean[capacity];
+        }
+
+        static Column of(final int sqlType, final int index, final int capacity, final BinaryEncoding binaryEncoding)
+                throws SQLException {
+            switch (sqlType) {
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return new BooleanColumn(index, capacity);
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    return new LongColumn(index, capacity);
+                case Types.REAL:
+                    return new FloatColumn(index, capacity);
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return new DoubleColumn(index, capacity);
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return new ObjectColumn(index, capacity, ResultSet::getBigDecimal);
+                case Types.DATE:
+                    return new ObjectColumn(index, capacity, ResultSet::getDate);
+                case Types.TIME:
+                    return new ObjectColumn(index, capacity, ResultSet::getTime);
+                case Types.TIMESTAMP:
+                    return new ObjectColumn(index, capacity, ResultSet::getTimestamp);
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                case Types.CLOB:
+                case Types.NCLOB:
+                    return new ObjectColumn(index, capacity, ResultSet::getString);
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                    return new ObjectColumn(index, capacity, ResultSet::getBytes, binaryEncoding);
+                case Types.BLOB:
+                    return new ObjectColumn(index, capacity, Column::getBlob, binaryEncoding);
+                case Types.ARRAY:
+                case Types.STRUCT:
+                case Types.REF:
+                case Types.DATALINK:
+                    throw new SQLFeatureNotSupportedException(String.format("The column %d has the SQL type %s, "
+                            + "which can't be exported as CSV", index, JDBCType.valueOf(sqlType).getName()));
+                default:
+                    return new ObjectColumn(index, capacity, Column::getObject, binaryEncoding);
+            }
+        }
+
+        private static byte[] getBlob(final ResultSet resultSet, final int columnIndex) throws SQLException {
+            Blob blob = resultSet.getBlob(columnIndex);
+            return blob == null ? null : toBytes(blob);
+        }
+
+        private static byte[] toBytes(final Blob blob) throws SQLException {
+            try {
+                return blob.getBytes(1, checkLength(blob.length()));
+            } finally {
+                try {
+                    blob.free();
+                } catch (SQLFeatureNotSupportedException e) {
+                    // JDBC 3 drivers release the LOB when the result set moves
+                }
+            }
+        }
+
+        private static String toText(final Clob clob) throws SQLException {
+            try {
+                return clob.getSubString(1, checkLength(clob.length()));
+            } finally {
+                try {
+                    clob.free();
+                } catch (SQLFeatureNotSupportedException e) {
+                    // JDBC 3 drivers release the LOB when the result set moves
+                }
+            }
+        }
+
+        private static int checkLength(final long length) throws SQLException {
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new SQLException("The LOB is too large to be exported: " + length);
+            }
+            return (int) length;
+        }
+
+        /**
+         * Reads a column of a type without a specific getter. The LOBs are read and freed and the values that have
+         * no textual representation are rejected.
+         */
+        private static Object getObject(final ResultSet resultSet, final int columnIndex) throws SQLException {
+
+            Object value = resultSet.getObject(columnIndex);
+            if (value instanceof Blob) {
+                return toBytes((Blob) value);
+            }
+            if (value instanceof Clob) {
+                return toText((Clob) value);
+            }
+            if (value instanceof SQLXML) {
+                SQLXML xml = (SQLXML) value;
+                try {
+                    return xml.getString();
+                } finally {
+                    xml.free();
+                }
+            }
+            if (value instanceof Array || value instanceof Struct || value instanceof Ref) {
+                throw new SQLFeatureNotSupportedException(String.format("The column %d contains a %s, which can't "
+                        + "be exported as CSV", columnIndex, value.getClass().getName()));
+            }
+            return value;
+        }
+
+        abstract void read(ResultSet resultSet, int row) throws SQLException;
+
+        abstract void append(CSVStringBuilder builder, int row);
+
+        void clear(final int size) {
+            // nothing to release
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final boolean[] values;
+
+        BooleanColumn(final int index, final int capacity) {
+            super(index, capacity);
+            this.values = new boolean[capacity];
+        }
+
+        @Override
+        void read(final ResultSet resultSet, final int row) throws SQLException {
+            values[row] = resultSet.getBoolean(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        void append(final CSVStringBuilder builder, final int row) {
+            builder.append(Boolean.valueOf(values[row]));
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        LongColumn(final int index, final int capacity) {
+            super(index, capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void read(final ResultSet resultSet, final int row) throws SQLException {
+            values[row] = resultSet.getLong(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        void append(final CSVStringBuilder builder, final int row) {
+            builder.append(values[row]);
+        }
+    }
+
+    private static final class FloatColumn extends Column {
+
+        private final float[] values;
+
+        FloatColumn(final int index, final int capacity) {
+            super(index, capacity);
+            this.values = new float[capacity];
+        }
+
+        @Override
+        void read(final ResultSet resultSet, final int row) throws SQLException {
+            values[row] = resultSet.getFloat(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        void append(final CSVStringBuilder builder, final int row) {
+            builder.append(values[row]);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        DoubleColumn(final int index, final int capacity) {
+            super(index, capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void read(final ResultSet resultSet, final int row) throws SQLException {
+            values[row] = resultSet.getDouble(index);
+            nulls[row] = resultSet.wasNull();
+        }
+
+        @Override
+        void append(final CSVStringBuilder builder, final int row) {
+            builder.append(values[row]);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private final Getter getter;
+        private final BinaryEncoding binaryEncoding;
+        private final Object[] values;
+
+        ObjectColumn(final int index, final int capacity, final Getter getter) {
+            this(index, capacity, getter, null);
+        }
+
+        ObjectColumn(final int index, final int capacity, final Getter getter, final BinaryEncoding binaryEncoding) {
+            super(index, capacity);
+            this.getter = getter;
+            this.binaryEncoding = binaryEncoding;
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        void read(final ResultSet resultSet, final int row) throws SQLException {
+            Object value = getter.get(resultSet, index);
+            values[row] = value;
+            nulls[row] = value == null;
+        }
+
+        @Override
+        void append(final CSVStringBuilder builder, final int row) {
+            Object value = values[row];
+            if (value instanceof byte[] && binaryEncoding != null) {
+                builder.append(binaryEncoding.encode((byte[]) value));
+            } else {
+                builder.appendObject(value);
+            }
+        }
+
+        @Override
+        void clear(final int size) {
+            for (int i = 0; i < size; i++) {
+                values[i] = null;
+            }
+        }
+    }
+
+    /**
+     * A getter of {@link ResultSet} returning an object.
+     */
+    @FunctionalInterface
+    private interface Getter {
+        Object get(ResultSet resultSet, int columnIndex) throws SQLException;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import com.dattack.formats.csv.RowSchema.ColumnType;
+import com.dattack.formats.csv.RowSchema.Quoting;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes complete rows of a {@link RowSchema}. The quoting and null strings of each column, the date formatters and
+ * the format strings are resolved when the schema is compiled, so writing a row only needs a pass
+ * over its values. The output is the same as the one of the {@code append} methods of {@link CSVStringBuilder}
+ * followed by {@link CSVStringBuilder#eol()}.
+ *
+ * <p>The format strings are compiled for the default locale at the time the encoder is created. This class is
+ * immutable and thread-safe: an encoder can be shared by several threads, each one with its own builder.</p>
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+public final class RowEncoder {
+
+    // the way of writing each column, resolved from its type and format
+    private static final int LONG = 0;
+    private static final int DOUBLE = 1;
+    private static final int STRING = 2;
+    private static final int DECIMAL = 3;
+    private static final int BOOLEAN = 4;
+    private static final int DATE = 5;
+    private static final int FORMATTED_LONG = 6;
+    private static final int FORMATTED_DOUBLE = 7;
+    private static final int FORMATTED_STRING = 8;
+    private static final int FORMATTED = 9;
+
+    private final FieldEscaper escaper;
+    private final int[] kinds;
+    // whether the value is enclosed in quote characters
+    private final boolean[] enclosed;
+    // whether the value is reported as quoted to the metrics listener
+    private final boolean[] quotedOutput;
+    // the separator and the null string
+    private final String[] nullValues;
+    private final boolean[] quoted;
+    private final CompiledFormat[] formats;
+    private final DateFieldFormatter[] dateFormatters;
+    // the position of the value of each column in the array of its type
+    private final int[] slots;
+    private final int longCount;
+    private final int doubleCount;
+    private final int objectCount;
+    private final String trueValue;
+    private final String falseValue;
+    private final char quoteChar;
+    private final String separator;
+    private final char separatorChar;
+    private final boolean singleCharSeparator;
+
+    RowEncoder(final RowSchema schema, final CSVConfiguration configuration) {
+
+        List<RowSchema.Column> columns = schema.getColumns();
+        int size = columns.size();
+        this.escaper = configuration.getEscaper();
+        this.kinds = new int[size];
+        this.enclosed = new boolean[size];
+        this.quotedOutput = new boolean[size];
+        this.nullValues = new String[size];
+        this.quoted = new boolean[size];
+        this.formats = new CompiledFormat[size];
+        this.dateFormatters = new DateFieldFormatter[size];
+        this.slots = new int[size];
+        this.trueValue = configuration.getTrueValue();
+        this.falseValue = configuration.getFalseValue();
+        this.quoteChar = configuration.getQuoteChar();
+        this.separator = configuration.getSeparator();
+        this.singleCharSeparator = separator.length() == 1;
+        this.separatorChar = singleCharSeparator ? separator.charAt(0) : ' ';
+
+        int longs = 0;
+        int doubles = 0;
+        int objects = 0;
+        for (int i = 0; i < size; i++) {
+            RowSchema.Column column = columns.get(i);
+            ColumnType type = column.getType();
+            quoted[i] = column.getQuoting() == Quoting.ALWAYS || column.getQuoting() == Quoting.DEFAULT
+                    && (type == ColumnType.STRING || type == ColumnType.BOOLEAN);
+            if (column.getFormat() != null) {
+                formats[i] = CompiledFormat.of(column.getFormat());
+            }
+
+            // the quotes of a formatted string are part of the formatted value
+            enclosed[i] = escaper.isQuoted(quoted[i]) && (formats[i] == null || type != ColumnType.STRING);
+            quotedOutput[i] = escaper.isQuoted(quoted[i]);
+            nullValues[i] = (i == 0 ? "" : separator) + configuration.getNullStr();
+            dateFormatters[i] = getDateFormatter(type, configuration);
+            kinds[i] = getKind(type, formats[i] != null);
+
+            if (type == ColumnType.LONG) {
+                slots[i] = longs++;
+            } else if (type == ColumnType.DOUBLE) {
+                slots[i] = doubles++;
+            } else {
+                slots[i] = objects++;
+            }
+        }
+        this.longCount = longs;
+        this.doubleCount = doubles;
+        this.objectCount = objects;
+    }
+
+    private static int getKind(final ColumnType type, final boolean formatted) {
+        switch (type) {
+            case LONG:
+                return formatted ? FORMATTED_LONG : LONG;
+            case DOUBLE:
+                return formatted ? FORMATTED_DOUBLE : DOUBLE;
+            case STRING:
+                return formatted ? FORMATTED_STRING : STRING;
+            case DECIMAL:
+                return formatted ? FORMATTED : DECIMAL;
+            case BOOLEAN:
+                return formatted ? FORMATTED : BOOLEAN;
+            default:
+                return formatted ? FORMATTED : DATE;
+        }
+    }
+
+    private static DateFieldFormatter getDateFormatter(final ColumnType type, final CSVConfiguration configuration) {
+        switch (type) {
+            case DATE:
+                return configuration.getDateFieldFormatter();
+            case SQL_DATE:
+                return configuration.getSqlDateFieldFormatter();
+            case TIME:
+                return configuration.getTimeFieldFormatter();
+            case TIMESTAMP:
+                return configuration.getTimestampFieldFormatter();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param builder the destination of the row
+     * @param values  the values of the row, one per column of the schema
+     */
+    public void encode(final CSVStringBuilder builder, final Object... values) {
+
+        if (values.length != kinds.length) {
+            throw new IllegalArgumentException(String.format("The row has %d values but the schema has %d columns",
+                    values.length, kinds.length));
+        }
+
+        StringBuilder buffer = builder.startRow();
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                buffer.append(nullValues[i]);
+            } else {
+                switch (kinds[i]) {
+                    case LONG:
+                        appendLong(buffer, i, ((Number) value).longValue());
+                        break;
+                    case DOUBLE:
+                        appendDouble(builder, buffer, i, ((Number) value).doubleValue());
+                        break;
+                    default:
+                        appendObject(builder, buffer, i, value);
+                        break;
+                }
+            }
+        }
+        builder.endRow(builder.isInstrumented() ? countQuoted(values, false) : 0);
+    }
+
+    /**
+     * Appends a row whose values are split by type, avoiding the creation of wrapper objects: the values of the
+     * {@link ColumnType#LONG} and {@link ColumnType#DOUBLE} columns are taken, in order, from the <code>longs</code>
+     * and <code>doubles</code> arrays, and the values of the other columns from the <code>objects</code> array.
+     *
+     * @param builder the destination of the row
+     * @param longs   the values of the LONG columns
+     * @param doubles the values of the DOUBLE columns
+     * @param objects the values of the other columns
+     */
+    public void encode(final CSVStringBuilder builder, final long[] longs, final double[] doubles,
+                       final Object[] objects) {
+
+        if (longs.length < longCount || doubles.length < doubleCount || objects.length < objectCount) {
+            throw new IllegalArgumentException(String.format(
+                    "The schema needs %d long values, %d double values and %d objects", longCount, doubleCount,
+                    objectCount));
+        }
+
+        StringBuilder buffer = builder.startRow();
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LONG:
+                    appendLong(buffer, i, longs[slots[i]]);
+                    break;
+                case DOUBLE:
+                    appendDouble(builder, buffer, i, doubles[slots[i]]);
+                    break;
+                case FORMATTED_LONG:
+                    appendFormatted(buffer, i, longs[slots[i]]);
+                    break;
+                case FORMATTED_DOUBLE:
+                    appendFormatted(buffer, i, doubles[slots[i]]);
+                    break;
+                default:
+                    Object value = objects[slots[i]];
+                    if (value == null) {
+                        buffer.append(nullValues[i]);
+                    } else {
+                        appendObject(builder, buffer, i, value);
+                    }
+                    break;
+            }
+        }
+        builder.endRow(builder.isInstrumented() ? countQuoted(objects, true) : 0);
+    }
+
+    /**
+     * Counts the quoted values of a row.
+     *
+     * @param values the values of the row or, when <code>typed</code> is true, the values of the columns that aren't
+     *               LONG or DOUBLE columns
+     * @param typed  whether the values of the LONG and DOUBLE columns are in primitive arrays
+     */
+    private int countQuoted(final Object[] values, final boolean typed) {
+        int count = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (quotedOutput[i] && (typed ? isPrimitive(kinds[i]) || values[slots[i]] != null : values[i] != null)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isPrimitive(final int kind) {
+        return kind == LONG || kind == DOUBLE || kind == FORMATTED_LONG || kind == FORMATTED_DOUBLE;
+    }
+
+    private void appendLong(final StringBuilder buffer, final int column, final long value) {
+        startField(buffer, column);
+        buffer.append(value);
+        endField(buffer, column);
+    }
+
+    private void appendDouble(final CSVStringBuilder builder, final StringBuilder buffer, final int column,
+                              final double value) {
+        startField(buffer, column);
+        if (!FieldFormatter.appendDouble(buffer, value)) {
+            buffer.append(builder.formatNumber(value));
+        }
+        endField(buffer, column);
+    }
+
+    private void appendObject(final CSVStringBuilder builder, final StringBuilder buffer, final int column,
+                              final Object value) {
+
+        switch (kinds[column]) {
+            case STRING:
+                appendString(builder, buffer, column, value);
+                break;
+            case DECIMAL:
+                appendDecimal(builder, buffer, column, (Number) value);
+                break;
+            case BOOLEAN:
+                appendBoolean(buffer, column, (Boolean) value);
+                break;
+            case DATE:
+                appendDate(buffer, column, (Date) value);
+                break;
+            case FORMATTED_STRING:
+                appendFormattedString(builder, buffer, column, value);
+                break;
+            default:
+                appendFormatted(buffer, column, value);
+                break;
+        }
+    }
+
+    private void appendString(final CSVStringBuilder builder, final StringBuilder buffer, final int column,
+                              final Object value) {
+        String string = value.toString();
+        boolean quote = escaper.isQuoted(string, quoted[column]);
+        if (quote == enclosed[column]) {
+            startField(buffer, column);
+            if (escaper.escapeTo(string, quote, buffer)) {
+                builder.fieldEscaped();
+            }
+            endField(buffer, column);
+        } else {
+            // the separator can't be escaped, so the value is quoted
+            startField(buffer, column);
+            buffer.append(quoteChar);
+            escaper.escapeTo(string, true, buffer);
+            buffer.append(quoteChar);
+            builder.fieldEscaped();
+        }
+    }
+
+    private void appendDecimal(final CSVStringBuilder builder, final StringBuilder buffer, final int column,
+                               final Number value) {
+        startField(buffer, column);
+        buffer.append(builder.formatNumber(value));
+        endField(buffer, column);
+    }
+
+    private void appendBoolean(final StringBuilder buffer, final int column, final Boolean value) {
+        startField(buffer, column);
+        buffer.append(value ? trueValue : falseValue);
+        endField(buffer, column);
+    }
+
+    private void appendDate(final StringBuilder buffer, final int column, final Date value) {
+        startField(buffer, column);
+        dateFormatters[column].formatTo(value.getTime(), buffer);
+        endField(buffer, column);
+    }
+
+    private void appendFormattedString(final CSVStringBuilder builder, final StringBuilder buffer, final int column,
+                                       final Object value) {
+        // a formatted string is quoted before it is formatted, as CSVStringBuilder does
+        String string = value.toString();
+        boolean quote = escaper.isQuoted(string, quoted[column]);
+        String escapedValue = escaper.escape(string, quote);
+        if (escapedValue != string || quote != escaper.isQuoted(quoted[column])) {
+            builder.fieldEscaped();
+        }
+        appendFormatted(buffer, column, quote ? quoteChar + escapedValue + quoteChar : escapedValue);
+    }
+
+    private void startField(final StringBuilder buffer, final int column) {
+        if (column > 0) {
+            if (singleCharSeparator) {
+                buffer.append(separatorChar);
+            } else {
+                buffer.append(separator);
+            }
+        }
+        if (enclosed[column]) {
+            buffer.append(quoteChar);
+        }
+    }
+
+    private void endField(final StringBuilder buffer, final int column) {
+        if (enclosed[column]) {
+            buffer.append(quoteChar);
+        }
+    }
+
+    private void appendFormatted(final StringBuilder buffer, final int column, final Object value) {
+        startField(buffer, column);
+        formats[column].formatTo(buffer, value);
+        endField(buffer, column);
+    }
+}
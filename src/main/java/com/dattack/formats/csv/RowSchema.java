@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The description of the columns of the rows written by a {@link RowEncoder}: the type of each column, an optional
+ * format string and the quoting policy. Instances are immutable and are created using the builder returned by
+ * {@link #custom()}.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+public final class RowSchema {
+
+    /**
+     * The type of the values of a column, and the {@code append} method of {@link CSVStringBuilder} whose output is
+     * reproduced.
+     */
+    public enum ColumnType {
+
+        /** Any object, written as the string returned by its {@code toString} method. */
+        STRING,
+
+        /** {@link Long}, {@link Integer}, {@link Short} or {@link Byte} values. */
+        LONG,
+
+        /** {@link Double} or {@link Float} values. */
+        DOUBLE,
+
+        /** Any {@link Number}, written as {@link java.math.BigDecimal} values are. */
+        DECIMAL,
+
+        /** {@link Boolean} values. */
+        BOOLEAN,
+
+        /** {@link java.util.Date} values, written using the date format. */
+        DATE,
+
+        /** {@link java.sql.Date} values, written using the SQL date format. */
+        SQL_DATE,
+
+        /** {@link java.sql.Time} values, written using the time format. */
+        TIME,
+
+        /** {@link java.sql.Timestamp} values, written using the timestamp format. */
+        TIMESTAMP
+    }
+
+    /**
+     * Whether the values of a column are enclosed in quote characters.
+     */
+    public enum Quoting {
+
+        /** As {@link CSVStringBuilder} does: strings and booleans are quoted, the other types aren't. */
+        DEFAULT,
+
+        /** All the values are quoted. */
+        ALWAYS,
+
+        /** No value is quoted. */
+        NEVER
+    }
+
+    private final List<Column> columns;
+
+    private RowSchema(final List<Column> columns) {
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+    }
+
+    public static RowSchemaBuilder custom() {
+        return new RowSchemaBuilder();
+    }
+
+    /**
+     * Compiles this schema for a configuration.
+     *
+     * @param configuration the CSV configuration
+     * @return the encoder of the rows
+     */
+    public RowEncoder compile(final CSVConfiguration configuration) {
+        return new RowEncoder(this, Objects.requireNonNull(configuration));
+    }
+
+    List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Builder class used to build a {@link RowSchema} instance.
+     */
+    public static final class RowSchemaBuilder {
+
+        private final List<Column> columns = new ArrayList<>();
+
+        private RowSchemaBuilder() {
+            // use RowSchema.custom()
+        }
+
+        /**
+         * Adds a column with the default quoting policy and no format.
+         *
+         * @param type the type of the values
+         * @return the instance of RowSchemaBuilder
+         */
+        public RowSchemaBuilder addColumn(final ColumnType type) {
+            return addColumn(type, null, Quoting.DEFAULT);
+        }
+
+        /**
+         * Adds a column with the default quoting policy.
+         *
+         * @param type   the type of the values
+         * @param format the format string of the values, as used by {@link String#format(String, Object...)}, or
+         *               <code>null</code>
+         * @return the instance of RowSchemaBuilder
+         */
+        public RowSchemaBuilder addColumn(final ColumnType type, final String format) {
+            return addColumn(type, format, Quoting.DEFAULT);
+        }
+
+        /**
+         * Adds a column.
+         *
+         * @param type    the type of the values
+         * @param format  the format string of the values, as used by {@link String#format(String, Object...)}, or
+         *                <code>null</code>
+         * @param quoting the quoting policy
+         * @return the instance of RowSchemaBuilder
+         */
+        public RowSchemaBuilder addColumn(final ColumnType type, final String format, final Quoting quoting) {
+            columns.add(new Column(Objects.requireNonNull(type), format, Objects.requireNonNull(quoting)));
+            return this;
+        }
+
+        public RowSchema build() {
+            if (columns.isEmpty()) {
+                throw new IllegalStateException("The schema must contain at least one column");
+            }
+            return new RowSchema(columns);
+        }
+    }
+
+    /**
+     * The definition of a column.
+     */
+    static final class Column {
+
+        private final ColumnType type;
+        private final String format;
+        private final Quoting quoting;
+
+        private Column(final ColumnType type, final String format, final Quoting quoting) {
+            this.type = type;
+            this.format = format;
+            this.quoting = quoting;
+        }
+
+        ColumnType getType() {
+            return type;
+        }
+
+        String getFormat() {
+            return format;
+        }
+
+        Quoting getQuoting() {
+            return quoting;
+        }
+    }
+}
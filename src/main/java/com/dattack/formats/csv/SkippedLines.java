@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts the comment and blank lines skipped by a reader. The reader passes the whitespaces it skips and notifies the
+ * start of each comment and record; the line break that ends a comment or a record isn't a blank line, and a
+ * carriage return followed by a line feed is a single line break.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class SkippedLines {
+
+    private final CSVMetricsListener listener;
+    private final byte commentByte;
+
+    private int commentLines;
+    private int blankLines;
+    // whether the current line contains a comment or a record
+    private boolean lineUsed;
+    private boolean previousCr;
+
+    SkippedLines(final CSVMetricsListener listener, final char commentChar) {
+        this.listener = listener;
+        this.commentByte = (byte) commentChar;
+    }
+
+    /**
+     * Notifies a skipped whitespace character.
+     */
+    void whitespace(final int c) {
+
+        if (c == '\n' || c == '\r') {
+            if (c == '\n' && previousCr) {
+                previousCr = false;
+                return;
+            }
+            previousCr = c == '\r';
+            if (lineUsed) {
+                lineUsed = false;
+            } else {
+                blankLines++;
+            }
+        } else {
+            previousCr = false;
+        }
+    }
+
+    /**
+     * Notifies the start of a comment line.
+     */
+    void comment() {
+        commentLines++;
+        lineUsed = true;
+        previousCr = false;
+    }
+
+    /**
+     * Notifies the start of a record and reports the lines skipped before it.
+     */
+    void record() {
+        lineUsed = true;
+        previousCr = false;
+        report();
+    }
+
+    /**
+     * Processes a region containing only whitespaces and comment lines.
+     *
+     * @param buffer the buffer containing the region
+     * @param from   the index of the first byte of the region
+     * @param to     the index after the last byte of the region
+     */
+    void scan(final ByteBuffer buffer, final int from, final int to) {
+
+        boolean inComment = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r') {
+                inComment = false;
+                whitespace(b);
+            } else if (!inComment) {
+                if (b == commentByte) {
+                    inComment = true;
+                    comment();
+                } else {
+                    whitespace(b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the lines skipped since the last report.
+     */
+    void report() {
+        if (commentLines != 0 || blankLines != 0) {
+            listener.linesSkipped(commentLines, blankLines);
+            commentLines = 0;
+            blankLines = 0;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with a bucket for each power of two nanoseconds. The buckets are striped counters, so
+ * many threads can record durations without contention; the percentiles are approximated by the upper bound of the
+ * bucket that contains them.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class TimeHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    TimeHistogram() {
+        buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values are recorded as zero
+     */
+    void record(final long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[BUCKETS - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1)].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the mean of the recorded durations, or zero if no duration has been recorded.
+     */
+    double getMean() {
+        long total = count.sum();
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded durations, or zero if no duration has been
+     * recorded.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound, in nanoseconds, of the bucket containing the percentile
+     */
+    long getPercentile(final double percentile) {
+
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long accumulated = 0;
+        int bucket = 0;
+        while (bucket < BUCKETS - 1) {
+            accumulated += counts[bucket];
+            if (accumulated >= rank) {
+                break;
+            }
+            bucket++;
+        }
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket + 1) - 1;
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+    }
+}
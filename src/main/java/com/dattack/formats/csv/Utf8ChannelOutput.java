@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * Encodes characters as UTF-8 directly into pooled byte buffers and writes them to a channel with a single gathering
+ * write, avoiding the intermediate copies of a {@link java.io.Writer}. The ASCII characters are encoded by a
+ * dedicated loop; the unpaired surrogates are replaced by {@code '?'}, as {@link java.io.OutputStreamWriter} does.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class Utf8ChannelOutput implements Closeable {
+
+    // the longest encoding of a character (a surrogate pair)
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final GatheringByteChannel channel;
+    private final ByteBufferPool pool;
+    private ByteBuffer[] buffers = new ByteBuffer[4];
+    private int bufferCount;
+    // the heap array where the characters are encoded before being copied to a direct buffer
+    private byte[] scratch;
+    private int charIndex;
+
+    Utf8ChannelOutput(final GatheringByteChannel channel, final boolean directBuffers) {
+        this.channel = channel;
+        this.pool = ByteBufferPool.getInstance(directBuffers);
+    }
+
+    /**
+     * Encodes and writes the characters of a builder. A high surrogate at the end of the builder isn't written until
+     * its low surrogate is available, unless <code>endOfInput</code> is set.
+     *
+     * @param chars      the characters to write
+     * @param endOfInput whether no more characters will follow
+     * @return the number of characters written, from the beginning of the builder
+     * @throws IOException if an I/O error occurs
+     */
+    int write(final StringBuilder chars, final boolean endOfInput) throws IOException {
+
+        int end = chars.length();
+        if (!endOfInput && end > 0 && Character.isHighSurrogate(chars.charAt(end - 1))) {
+            end--;
+        }
+
+        charIndex = 0;
+        try {
+            while (charIndex < end) {
+                ByteBuffer buffer = currentBuffer();
+                if (buffer.hasArray()) {
+                    int offset = buffer.arrayOffset();
+                    int position = encode(chars, end, buffer.array(), offset + buffer.position(),
+                            offset + buffer.limit());
+                    buffer.position(position - offset);
+                } else {
+                    if (scratch == null) {
+                        scratch = new byte[ByteBufferPool.BUFFER_SIZE];
+                    }
+                    int length = encode(chars, end, scratch, 0, Math.min(scratch.length, buffer.remaining()));
+                    buffer.put(scratch, 0, length);
+                }
+            }
+            drain();
+        } finally {
+            releaseBuffers();
+        }
+        return end;
+    }
+
+    private ByteBuffer currentBuffer() {
+
+        if (bufferCount > 0 && buffers[bufferCount - 1].remaining() >= MAX_BYTES_PER_CHAR) {
+            return buffers[bufferCount - 1];
+        }
+        if (bufferCount == buffers.length) {
+            buffers = Arrays.copyOf(buffers, bufferCount * 2);
+        }
+        ByteBuffer buffer = pool.acquire();
+        buffers[bufferCount++] = buffer;
+        return buffer;
+    }
+
+    /**
+     * Encodes characters, starting at <code>charIndex</code>, until the end of the characters or until there is no
+     * room for a full character in the array.
+     *
+     * @return the position of the array after the last byte written
+     */
+    private int encode(final StringBuilder chars, final int end, final byte[] array, final int start,
+                       final int limit) {
+
+        int index = charIndex;
+        int position = start;
+        int last = limit - MAX_BYTES_PER_CHAR;
+        while (index < end && position <= last) {
+            char c = chars.charAt(index++);
+            if (c < 0x80) {
+                array[position++] = (byte) c;
+            } else if (c < 0x800) {
+                array[position++] = (byte) (0xC0 | c >> 6);
+                array[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                array[position++] = (byte) (0xE0 | c >> 12);
+                array[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                array[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && index < end && Character.isLowSurrogate(chars.charAt(index))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(index++));
+                array[position++] = (byte) (0xF0 | codePoint >> 18);
+                array[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                array[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                array[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                array[position++] = '?';
+            }
+        }
+        charIndex = index;
+        return position;
+    }
+
+    private void drain() throws IOException {
+
+        for (int i = 0; i < bufferCount; i++) {
+            buffers[i].flip();
+        }
+        int first = 0;
+        while (first < bufferCount) {
+            channel.write(buffers, first, bufferCount - first);
+            while (first < bufferCount && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
+    private void releaseBuffers() {
+        for (int i = 0; i < bufferCount; i++) {
+            pool.release(buffers[i]);
+            buffers[i] = null;
+        }
+        bufferCount = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
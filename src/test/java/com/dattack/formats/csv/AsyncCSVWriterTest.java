@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AsyncCSVWriterTest {
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withQueueCapacity(8) //
+                .withFlushThreshold(100) //
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<String> expected = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, out)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                final int producer = task;
+                futures.add(executor.submit(() -> {
+                    Object[] row = new Object[4];
+                    for (int i = 0; i < 1_000; i++) {
+                        row[0] = producer;
+                        row[1] = "row " + i;
+                        row[2] = i % 2 == 0 ? null : BigInteger.valueOf(i);
+                        row[3] = new Timestamp(1577970855003L + i);
+                        assertTrue(writer.write(row));
+                    }
+                    return null;
+                }));
+                for (int i = 0; i < 1_000; i++) {
+                    expected.add(new CSVStringBuilder(configuration) //
+                            .append(task) //
+                            .append("row " + i) //
+                            .append(i % 2 == 0 ? null : Long.valueOf(i)) //
+                            .append(new Timestamp(1577970855003L + i)) //
+                            .eol() //
+                            .toString());
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            lines.add(line + "\n");
+        }
+        Collections.sort(lines);
+        Collections.sort(expected);
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        StringWriter output = new StringWriter();
+        Writer blockingWriter = new Writer() {
+
+            @Override
+            public void write(final char[] buffer, final int offset, final int length) {
+                output.write(buffer, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        };
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withQueueCapacity(2) //
+                .withDropWhenFull(true) //
+                .withLingerMillis(1) //
+                .build();
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, blockingWriter)) {
+            // the consumer is blocked flushing the first row, so the buffer can hold two more rows
+            assertTrue(writer.write(1));
+            while (!output.toString().equals("1\n")) {
+                Thread.yield();
+            }
+            assertTrue(writer.write(2));
+            assertTrue(writer.write(3));
+            assertFalse(writer.write(4));
+            assertEquals(1, writer.getDroppedRows());
+            release.countDown();
+        }
+        assertEquals("1\n2\n3\n", output.toString());
+    }
+
+    @Test
+    public void testFlushAndClose() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        StringWriter output = new StringWriter();
+        AsyncCSVWriter writer = new AsyncCSVWriter(configuration, output);
+        writer.write("a", 1, 2.5, true);
+        writer.flush();
+        assertEquals("\"a\",1,2.5,\"true\"\n", output.toString());
+
+        writer.close();
+        assertThrows(IllegalStateException.class, () -> writer.write("b"));
+    }
+
+    @Test
+    public void testWriteError() throws Exception {
+
+        Writer failingWriter = new Writer() {
+
+            @Override
+            public void write(final char[] buffer, final int offset, final int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+                // nothing to flush
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+        };
+
+        CSVConfiguration configuration = CSVConfiguration.custom().build();
+        AsyncCSVWriter writer = new AsyncCSVWriter(configuration, failingWriter);
+        writer.write(1, 2);
+        IOException exception = assertThrows(IOException.class, writer::flush);
+        assertEquals("disk full", exception.getMessage());
+        assertThrows(UncheckedIOException.class, () -> writer.write("a"));
+        assertThrows(IOException.class, writer::close);
+    }
+
+    /**
+     * A writer that counts the calls to {@code write} and {@code flush}.
+     */
+    private static final class CountingWriter extends StringWriter {
+
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicInteger flushes = new AtomicInteger();
+
+        @Override
+        public void write(final char[] buffer, final int offset, final int length) {
+            writes.incrementAndGet();
+            super.write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testBatchedWrites() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withFlushThreshold(1000) //
+                .withLingerMillis(0) //
+                .build();
+        CountingWriter output = new CountingWriter();
+        StringBuilder expected = new StringBuilder();
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, output)) {
+            // a producer slower than the consumer: the buffer is empty after each row
+            for (int i = 0; i < 200; i++) {
+                writer.write("row " + i);
+                expected.append("\"row ").append(i).append("\"\n");
+                Thread.sleep(1);
+            }
+            assertEquals(0, output.flushes.get());
+            assertTrue(output.writes.get() <= 3, "writes: " + output.writes.get());
+
+            writer.flush();
+            assertEquals(1, output.flushes.get());
+            assertEquals(expected.toString(), output.toString());
+        }
+    }
+
+    @Test
+    public void testLinger() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withLingerMillis(10) //
+                .build();
+        CountingWriter output = new CountingWriter();
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, output)) {
+            writer.write(1, 2);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (output.flushes.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, output.flushes.get());
+            assertEquals("1,2\n", output.toString());
+        }
+    }
+
+    @Test
+    public void testTypedRows() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .build();
+        StringWriter output = new StringWriter();
+        CSVStringBuilder expected = new CSVStringBuilder(configuration);
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, output)) {
+            for (int i = 0; i < 100; i++) {
+                AsyncCSVWriter.Row row = writer.claim();
+                for (int column = 0; column < 20; column++) {
+                    row.append(i * column);
+                }
+                row.append(i / 8.0).append(i % 2 == 0).append("text " + i).append((Object) null) //
+                        .append(new Timestamp(1577970855003L + i));
+                row.publish();
+
+                for (int column = 0; column < 20; column++) {
+                    expected.append(i * column);
+                }
+                expected.append(i / 8.0).append(Boolean.valueOf(i % 2 == 0)).append("text " + i) //
+                        .append((String) null).append(new Timestamp(1577970855003L + i)).eol();
+            }
+        }
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    public void testCancelledRows() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withQueueCapacity(2) //
+                .build();
+        StringWriter output = new StringWriter();
+        try (AsyncCSVWriter writer = new AsyncCSVWriter(configuration, output)) {
+            assertThrows(NullPointerException.class, () -> writer.write((Object[]) null));
+            for (int i = 0; i < 3; i++) {
+                AsyncCSVWriter.Row row = writer.claim();
+                try {
+                    row.append(i);
+                    throw new IllegalArgumentException("invalid value");
+                } catch (IllegalArgumentException e) {
+                    row.cancel();
+                }
+            }
+
+            // the second row isn't written, nor its slot reused, until the first one is released
+            AsyncCSVWriter.Row first = writer.claim();
+            AsyncCSVWriter.Row second = writer.claim().append(2);
+            second.publish();
+            assertThrows(IllegalStateException.class, second::publish);
+            assertThrows(IllegalStateException.class, second::cancel);
+            first.cancel();
+
+            assertTrue(writer.write(1, 2));
+            writer.flush();
+            assertEquals("2\n1,2\n", output.toString());
+        }
+    }
+}
@@ -18,10 +18,24 @@ package com.dattack.formats.csv;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.junit.jupiter.api.Assertions.*;
 
 public final class CSVBuilderTest {
@@ -70,6 +84,101 @@ public final class CSVBuilderTest {
         assertEquals(expected, csv);
     }
 
+    @Test
+    public void testDateConcurrently() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom()
+                .withTimeZoneName("Europe/Madrid")
+                .withDateFormat("EEE, d MMM yyyy HH:mm:ss.SSS Z") //
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int task = 0; task < 4; task++) {
+                final long seed = task;
+                futures.add(executor.submit(() -> {
+                    SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss.SSS Z");
+                    dateFormat.setTimeZone(TimeZone.getTimeZone("Europe/Madrid"));
+                    SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+                    timestampFormat.setTimeZone(TimeZone.getTimeZone("Europe/Madrid"));
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 10_000; i++) {
+                        java.util.Date date = new java.util.Date(1_600_000_000_000L + random.nextInt(100_000_000));
+                        String csv = new CSVStringBuilder(configuration) //
+                                .append(date) //
+                                .append(new java.sql.Timestamp(date.getTime())) //
+                                .toString();
+                        assertEquals(dateFormat.format(date) + "," + timestampFormat.format(date), csv);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDatesBefore1900() {
+
+        long[] values = {java.sql.Timestamp.valueOf("0001-01-01 00:00:00").getTime(), -65_000_000_000_000L,
+            java.sql.Timestamp.valueOf("1582-10-01 12:00:00").getTime(),
+            java.sql.Timestamp.valueOf("1582-10-15 00:00:00.250").getTime(), -2_208_988_800_001L,
+            java.sql.Timestamp.valueOf("1900-01-01 00:00:00").getTime(), -315_619_200_000L, 1_600_000_000_000L};
+        String[] patterns = {"yyyy-MM-dd'T'HH:mm:ss.SSSXXX", "yyyy-MM-dd", "dd/MM/yyyy HH:mm", "yyyy-MM-dd HH:mm:ss Z"};
+        for (String zone : new String[] {"Europe/Madrid", "UTC", "Africa/Monrovia", "Africa/Windhoek"}) {
+            for (String pattern : patterns) {
+                CSVConfiguration configuration = CSVConfiguration.custom() //
+                        .withTimeZoneName(zone) //
+                        .withTimestampFormat(pattern) //
+                        .build();
+                SimpleDateFormat format = new SimpleDateFormat(pattern);
+                format.setTimeZone(TimeZone.getTimeZone(zone));
+                for (long value : values) {
+                    assertEquals(format.format(new java.util.Date(value)), new CSVStringBuilder(configuration) //
+                            .append(new java.sql.Timestamp(value)).toString(), zone + " " + pattern);
+                }
+            }
+        }
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withTimeZoneName("Europe/Madrid") //
+                .withTimestampFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX") //
+                .build();
+        assertEquals("0001-01-01T01:00:00.000+01:00", new CSVStringBuilder(configuration) //
+                .append(new java.sql.Timestamp(-62_135_769_600_000L)).toString());
+        assertEquals("1900-01-01T00:00:00.000-00:14", new CSVStringBuilder(configuration) //
+                .append(new java.sql.Timestamp(-2_208_987_916_000L)).toString());
+        assertEquals("0001-01-01,1582-10-01", new CSVStringBuilder(configuration) //
+                .append(java.sql.Date.valueOf("0001-01-01")) //
+                .append(java.sql.Date.valueOf("1582-10-01")) //
+                .toString());
+    }
+
+    @Test
+    public void testTwoDigitYears() throws Exception {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withTimeZoneName("Europe/Madrid") //
+                .withDateFormat("dd/MM/yy") //
+                .build();
+        SimpleDateFormat format = new SimpleDateFormat("dd/MM/yy");
+        format.setTimeZone(TimeZone.getTimeZone("Europe/Madrid"));
+        java.util.Date date = format.parse("15/06/1985");
+
+        String csv = new CSVStringBuilder(configuration).append(date).toString();
+        assertEquals("15/06/85", csv);
+        assertEquals(date.getTime(), configuration.getDateFieldFormatter().parse(csv));
+        assertEquals(1985, configuration.getDateFormatter().parse(csv).get(ChronoField.YEAR));
+
+        java.util.Date nextYears = format.parse("01/01/" + (LocalDate.now().getYear() + 5));
+        csv = new CSVStringBuilder(configuration).append(nextYears).toString();
+        assertEquals(nextYears.getTime(), configuration.getDateFieldFormatter().parse(csv));
+    }
+
     @Test
     public void testWriteWithEmptyProperties() {
 
@@ -180,6 +289,119 @@ public final class CSVBuilderTest {
         assertEquals("\"hello\",\"world\",\"prefix\\\"suffix\"", csvBuilder.toString());
     }
 
+    @Test
+    public void testPrimitiveNumbers() {
+
+        DecimalFormat decimalFormat = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+        decimalFormat.setMaximumFractionDigits(Integer.MAX_VALUE);
+        decimalFormat.setRoundingMode(RoundingMode.HALF_UP);
+
+        double[] values = {0.0, -0.0, 1.0, -2.5, 0.1, 1000.5, 1e-9, 123456789.125, 1e20, 1.0 / 3, Math.PI,
+            Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY, 0.1f, -3.75f};
+        CSVConfiguration configuration = CSVConfiguration.custom().withSeparator(";").build();
+        for (double value : values) {
+            String expected = decimalFormat.format(value);
+            assertEquals(expected, new CSVStringBuilder(configuration).append(value).toString());
+            assertEquals(expected, new CSVStringBuilder(configuration).append(Double.valueOf(value)).toString());
+        }
+
+        assertEquals("0.10000000149011612;-3.75", new CSVStringBuilder(configuration).append(0.1f) //
+                .append(Float.valueOf(-3.75f)).toString());
+        assertEquals("-2147483648;9223372036854775807;-9223372036854775808", new CSVStringBuilder(configuration) //
+                .append(Integer.MIN_VALUE) //
+                .append(Long.MAX_VALUE) //
+                .append(Long.valueOf(Long.MIN_VALUE)) //
+                .toString());
+    }
+
+    @Test
+    public void testFormattedValues() {
+
+        Object[] values = {0.0, -0.0, 2.5, -0.001, 1.005, 999999.995, 0.1f, Double.NaN, 1e300, 42, -42,
+            Long.MIN_VALUE, "text"};
+        String[] formats = {"%.2f", "%.0f", "%010.3f", "%-9.1f|", "%f", "%05d", "%-6d|", "%d", "%s", "[%8s]", "%%%s%n",
+            "%,d", "%+.1f", "%1$s", "%e"};
+        CSVConfiguration configuration = CSVConfiguration.custom().withQuoteChar('\u0000').build();
+        for (String format : formats) {
+            for (Object value : values) {
+                String expected;
+                try {
+                    expected = String.format(format, value);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                CSVStringBuilder csvBuilder = new CSVStringBuilder(configuration);
+                if (value instanceof Double) {
+                    csvBuilder.append((Double) value, format);
+                } else if (value instanceof Float) {
+                    csvBuilder.append((Float) value, format);
+                } else if (value instanceof Integer) {
+                    csvBuilder.append((Integer) value, format);
+                } else if (value instanceof Long) {
+                    csvBuilder.append((Long) value, format);
+                } else {
+                    csvBuilder.append((String) value, format);
+                }
+                assertEquals(expected, csvBuilder.toString(), format);
+            }
+        }
+
+        CSVStringBuilder csvBuilder = new CSVStringBuilder(configuration).append(1);
+        assertThrows(IllegalArgumentException.class, () -> csvBuilder.append(2.5, "%d"));
+        assertEquals("1,3", csvBuilder.append(3).toString());
+    }
+
+    @Test
+    public void testEscapeRegexMetacharacters() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom()
+                .withQuoteChar('|')
+                .withEscapeChar('$')
+                .withEol("\n")
+                .build();
+        String csv = new CSVStringBuilder(configuration)
+                .append("a|b")
+                .append("plain")
+                .append("multi\nline")
+                .toString();
+        assertEquals("|a$|b|,|plain|,|multi line|", csv);
+
+        configuration = CSVConfiguration.custom()
+                .withQuoteChar('\u0000')
+                .withSeparator(".")
+                .build();
+        csv = new CSVStringBuilder(configuration)
+                .append("1.5")
+                .append("x")
+                .toString();
+        assertEquals("1\\.5.x", csv);
+    }
+
+    @Test
+    public void testEscapeWithoutEscapeChar() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom()
+                .withEscapeChar('\u0000')
+                .build();
+        String csv = new CSVStringBuilder(configuration)
+                .append("say \"hi\"")
+                .toString();
+        assertEquals("\"say \"\"hi\"\"\"", csv);
+    }
+
+    @Test
+    public void testSeparatorWithoutEscapeChar() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom()
+                .withEscapeChar('\u0000')
+                .withQuoteChar('\u0000')
+                .build();
+        CSVStringBuilder builder = new CSVStringBuilder(configuration).append("a");
+        assertThrows(IllegalArgumentException.class, () -> builder.append("b,c"));
+        assertThrows(IllegalArgumentException.class, () -> builder.append("b,c", "%s"));
+        assertEquals("a,d", builder.append("d").toString().trim());
+    }
+
     private CSVConfiguration getCsvConfiguration() {
         return CSVConfiguration.custom()
                 .withEscapeChar('\\')
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVIndexTest {
+
+    private static final int ROWS = 1000;
+
+    private static Path createFile() throws IOException {
+
+        StringBuilder content = new StringBuilder("id,text\n# comment\n");
+        for (int i = 0; i < ROWS; i++) {
+            content.append(i).append(",\"line ").append(i);
+            if (i % 3 == 0) {
+                content.append("\n# not a comment\n\nend");
+            }
+            content.append("\"\n");
+            if (i % 100 == 0) {
+                content.append("# comment ").append(i).append("\n\n");
+            }
+        }
+        Path path = CSVTestFiles.createFile(content.toString()).toPath();
+        CSVIndex.getSidecarPath(path).toFile().deleteOnExit();
+        return path;
+    }
+
+    @Test
+    public void testSeekToRow() throws IOException {
+
+        Path path = createFile();
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true).build();
+        List<List<String>> expected = readAll(configuration, path.toFile());
+        assertEquals(ROWS + 1, expected.size());
+
+        CSVIndex index = CSVIndex.build(configuration, path, 7);
+        assertEquals((long) expected.size(), index.getRowCount());
+
+        try (CSVReader reader = new CSVReader(configuration, path, index)) {
+            assertEquals((long) expected.size(), reader.rowCount());
+            for (int row : new int[] {500, 0, 1, 6, 7, 8, 699, 700, 1000, 3}) {
+                reader.seekToRow(row);
+                assertEquals(expected.get(row), toStrings(reader.next()), "row " + row);
+                if (row + 1 < expected.size()) {
+                    assertEquals(expected.get(row + 1), toStrings(reader.next()), "row " + (row + 1));
+                }
+            }
+            reader.seekToRow(expected.size());
+            assertNull(reader.next());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.seekToRow(expected.size() + 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.seekToRow(-1));
+        }
+    }
+
+    @Test
+    public void testHeaderAndFilter() throws IOException {
+
+        Path path = createFile();
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true) //
+                .withColumnNames("text", "id") //
+                .withFilter(CSVRowFilter.startsWith(1, "95")) //
+                .build();
+        CSVIndex index = CSVIndex.build(configuration, path, 16);
+        assertEquals((long) ROWS, index.getRowCount());
+
+        try (CSVReader reader = new CSVReader(configuration, path, index)) {
+            reader.seekToRow(0);
+            assertEquals(Arrays.asList("line 95", "95"), toStrings(reader.next()));
+            reader.seekToRow(100);
+            assertEquals(Arrays.asList("line 950", "950"), toStrings(reader.next()));
+            reader.seekToRow(952);
+            assertEquals(Arrays.asList("line 952", "952"), toStrings(reader.next()));
+            reader.seekToRow(960);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testSplitRows() throws IOException {
+
+        Path path = createFile();
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true).build();
+        List<List<String>> expected = readAll(configuration, path.toFile());
+        CSVIndex index = CSVIndex.build(configuration, path, 64);
+
+        long[] bounds = index.splitRows(4);
+        assertEquals(5, bounds.length);
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            assertEquals(0L, bounds[i] % index.getInterval());
+            try (CSVReader reader = new CSVReader(configuration, path, index)) {
+                reader.seekToRow(bounds[i]);
+                for (long row = bounds[i]; row < bounds[i + 1]; row++) {
+                    rows.add(toStrings(reader.next()));
+                }
+            }
+        }
+        assertEquals(expected, rows);
+        assertArrayEquals(new long[] {0, index.getRowCount()}, index.splitRows(1));
+    }
+
+    @Test
+    public void testSidecarFile() throws IOException {
+
+        Path path = createFile();
+        Path sidecarPath = CSVIndex.getSidecarPath(path);
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true).build();
+
+        CSVIndex index = CSVIndex.load(configuration, path);
+        assertTrue(Files.exists(sidecarPath));
+        assertEquals(CSVIndex.DEFAULT_INTERVAL, index.getInterval());
+        assertTrue(Files.size(sidecarPath) < 100);
+
+        CSVIndex built = CSVIndex.build(configuration, path, 3);
+        built.write(sidecarPath);
+        CSVIndex read = CSVIndex.read(sidecarPath);
+        assertEquals(built.getRowCount(), read.getRowCount());
+        assertEquals(3, read.getInterval());
+        for (long row = 0; row <= built.getRowCount(); row++) {
+            assertEquals(built.getOffset(row), read.getOffset(row));
+        }
+        assertTrue(read.isCurrent(configuration, path));
+        assertEquals(3, CSVIndex.load(configuration, path).getInterval());
+
+        // another layout or another content rebuild the index
+        assertFalse(read.isCurrent(CSVConfiguration.custom().build(), path));
+        Files.write(path, "1000,\"last\"\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertFalse(read.isCurrent(configuration, path));
+        try (CSVReader reader = new CSVReader(configuration, path, read)) {
+            assertThrows(IOException.class, () -> reader.seekToRow(0));
+        }
+        CSVIndex rebuilt = CSVIndex.load(configuration, path);
+        assertEquals(read.getRowCount() + 1, rebuilt.getRowCount());
+        assertEquals(CSVIndex.DEFAULT_INTERVAL, rebuilt.getInterval());
+
+        Files.write(sidecarPath, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> CSVIndex.read(sidecarPath));
+        assertEquals(rebuilt.getRowCount(), CSVIndex.load(configuration, path).getRowCount());
+    }
+
+    @Test
+    public void testInvalidUse() throws IOException {
+
+        Path path = createFile();
+        CSVConfiguration configuration = CSVConfiguration.custom().build();
+        try (CSVReader reader = new CSVReader(configuration, path)) {
+            assertThrows(IllegalStateException.class, reader::rowCount);
+            assertThrows(IllegalStateException.class, () -> reader.seekToRow(0));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CSVIndex.build(configuration, path, 0));
+        CSVIndex index = CSVIndex.build(configuration, path, 10);
+        assertThrows(IllegalArgumentException.class,
+            () -> new CSVReader(configuration, path.resolveSibling("data.csv.gz"), index));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import com.dattack.formats.csv.RowSchema.ColumnType;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVMetricsTest {
+
+    private static final String CONTENT = "# header\na,b\n\n  \nc,\"d\"\r\n# other\r\n\r\ne,f\n\n";
+
+    private static CSVMetrics read(final File file, final boolean mapped) throws IOException {
+
+        CSVMetrics metrics = new CSVMetrics();
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withMemoryMapped(mapped) //
+                .withMetricsListener(metrics) //
+                .build();
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            while (reader.next() != null) {
+                assertTrue(metrics.getRowsRead() > 0);
+            }
+        }
+        return metrics;
+    }
+
+    @Test
+    public void testReadCounts() throws IOException {
+
+        File file = createFile(CONTENT);
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVMetrics metrics = read(file, mapped);
+            assertEquals(3L, metrics.getRowsRead(), "mapped: " + mapped);
+            assertEquals(2L, metrics.getCommentLinesSkipped(), "mapped: " + mapped);
+            assertEquals(4L, metrics.getBlankLinesSkipped(), "mapped: " + mapped);
+            assertTrue(metrics.getBytesRead() > 0, "mapped: " + mapped);
+            assertTrue(metrics.getBytesRead() <= file.length(), "mapped: " + mapped);
+            assertTrue(metrics.getParseNanos99thPercentile() >= metrics.getParseNanos50thPercentile());
+        }
+        assertEquals(file.length(), read(file, false).getBytesRead());
+    }
+
+    @Test
+    public void testWriteCounts() throws IOException {
+
+        CSVMetrics metrics = new CSVMetrics();
+        CSVConfiguration configuration = CSVConfiguration.custom().withMetricsListener(metrics).build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CSVWriter writer = new CSVWriter(configuration, out)) {
+            writer.comment("not a row");
+            writer.append("plain").append("with,separator").append(1L).eol();
+            writer.append("with \"quotes\"").append((String) null).eol();
+        }
+
+        assertEquals(2L, metrics.getRowsWritten());
+        assertEquals((long) out.size(), metrics.getBytesWritten());
+        assertEquals(1L, metrics.getEscapedFields());
+        assertTrue(metrics.getQuotedFields() >= 2);
+        assertEquals(0L, metrics.getRowsRead());
+    }
+
+    @Test
+    public void testRowEncoderCounts() throws IOException {
+
+        RowSchema schema = RowSchema.custom() //
+                .addColumn(ColumnType.STRING) //
+                .addColumn(ColumnType.LONG) //
+                .build();
+        CSVMetrics expected = new CSVMetrics();
+        CSVMetrics encoded = new CSVMetrics();
+        StringWriter expectedOutput = new StringWriter();
+        StringWriter encodedOutput = new StringWriter();
+        CSVConfiguration encodedConfiguration = CSVConfiguration.custom().withMetricsListener(encoded).build();
+        RowEncoder encoder = schema.compile(encodedConfiguration);
+        try (CSVWriter appends = new CSVWriter(CSVConfiguration.custom().withMetricsListener(expected).build(),
+                expectedOutput); CSVWriter writer = new CSVWriter(encodedConfiguration, encodedOutput)) {
+            for (int i = 0; i < 10; i++) {
+                String text = i % 3 == 0 ? "a \"" + i + "\"" : "b" + i;
+                appends.append(text).append((long) i).eol();
+                encoder.encode(writer, new Object[] {text, (long) i});
+            }
+        }
+
+        assertEquals(expectedOutput.toString(), encodedOutput.toString());
+        assertEquals(10L, encoded.getRowsWritten());
+        assertEquals(expected.getQuotedFields(), encoded.getQuotedFields());
+        assertEquals(expected.getEscapedFields(), encoded.getEscapedFields());
+        assertEquals(4L, encoded.getEscapedFields());
+        assertEquals((long) expectedOutput.toString().length(), encoded.getBytesWritten());
+    }
+
+    @Test
+    public void testReset() {
+
+        CSVMetrics metrics = new CSVMetrics();
+        metrics.rowRead(100);
+        metrics.rowRead(1000);
+        metrics.linesSkipped(1, 2);
+        metrics.rowWritten(10, 1, 1);
+        assertEquals(2L, metrics.getRowsRead());
+        assertEquals(550.0, metrics.getMeanParseNanos());
+        assertEquals(127L, metrics.getParseNanos50thPercentile());
+        assertEquals(1023L, metrics.getParseNanos99thPercentile());
+        assertEquals(15L, metrics.getEncodeNanosPercentile(100));
+
+        metrics.reset();
+        assertEquals(0L, metrics.getRowsRead());
+        assertEquals(0L, metrics.getCommentLinesSkipped());
+        assertEquals(0L, metrics.getRowsWritten());
+        assertEquals(0L, metrics.getParseNanos99thPercentile());
+        assertEquals(0.0, metrics.getMeanEncodeNanos());
+    }
+
+    @Test
+    public void testRegisterMBean() throws JMException {
+
+        CSVMetrics metrics = new CSVMetrics();
+        metrics.rowRead(1);
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RowsRead"));
+            assertThrows(JMException.class, () -> metrics.registerMBean("test"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
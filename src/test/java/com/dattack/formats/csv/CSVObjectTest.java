@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Date;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVObjectTest {
+
+    private static CSVObject writeAndRead(final CSVConfiguration configuration, final CSVStringBuilder builder)
+            throws IOException {
+
+        File file = createFile(builder.toString());
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            return reader.next();
+        }
+    }
+
+    private static void assertTypedValues(final CSVConfiguration.CsvConfigurationBuilder configurationBuilder)
+            throws IOException {
+
+        Timestamp timestamp = new Timestamp(1577970855003L);
+        java.sql.Date sqlDate = java.sql.Date.valueOf(LocalDate.of(2020, 12, 4));
+        Time time = new Time(Time.valueOf(LocalTime.of(23, 51, 57)).getTime() + 3);
+        Date date = new Date(1607125917003L);
+
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration configuration = configurationBuilder.withMemoryMapped(mapped).build();
+            CSVStringBuilder builder = new CSVStringBuilder(configuration) //
+                    .append(-42) //
+                    .append(Long.MIN_VALUE) //
+                    .append(1000.5) //
+                    .append(new BigDecimal("-10.5")) //
+                    .append(true) //
+                    .append(false) //
+                    .append(timestamp) //
+                    .append(sqlDate) //
+                    .append(time) //
+                    .append(date) //
+                    .append((Integer) null) //
+                    .append(Double.POSITIVE_INFINITY) //
+                    .eol();
+
+            CSVObject csvObject = writeAndRead(configuration, builder);
+
+            assertEquals(-42, csvObject.getInt(0));
+            assertEquals(Long.MIN_VALUE, csvObject.getLong(1));
+            assertEquals(1000.5, csvObject.getDouble(2));
+            assertEquals(new BigDecimal("-10.5"), csvObject.getBigDecimal(3));
+            assertTrue(csvObject.getBoolean(4));
+            assertFalse(csvObject.getBoolean(5));
+            assertEquals(timestamp, csvObject.getTimestamp(6));
+            assertEquals(sqlDate, csvObject.getSqlDate(7));
+            assertEquals(time, csvObject.getTime(8));
+            assertEquals(date, csvObject.getDate(9));
+            assertTrue(csvObject.isNull(10));
+            assertEquals(0, csvObject.getInt(10));
+            assertNull(csvObject.getBigDecimal(10));
+            assertNull(csvObject.getTimestamp(10));
+            assertEquals(Double.POSITIVE_INFINITY, csvObject.getDouble(11));
+        }
+    }
+
+    @Test
+    public void testTypedValuesWithDefaultConfiguration() throws IOException {
+        assertTypedValues(CSVConfiguration.custom().withEol("\n"));
+    }
+
+    @Test
+    public void testTypedValuesWithCustomConfiguration() throws IOException {
+        assertTypedValues(CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withSeparator("|") //
+                .withNullValue("(NULL)") //
+                .withTrueValue("Y") //
+                .withFalseValue("N") //
+                .withSqlDateFormat("dd/MM/yyyy") //
+                .withTimeFormat("HH:mm:ss.SSS a") //
+                .withDateFormat("yyyy-MM-dd HH:mm:ss.SSS") //
+                .withTimestampFormat("yyyy/MM/dd HH:mm:ss.SSSXXX") //
+                .withTimeZoneName("UTC"));
+    }
+
+    @Test
+    public void testDatesBefore1900() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("Europe/Madrid") //
+                .withSqlDateFormat("dd/MM/yyyy") //
+                .build();
+        Timestamp[] timestamps = {new Timestamp(-62_135_769_600_000L), new Timestamp(-12_220_000_000_123L),
+            new Timestamp(-5_364_662_400_000L)};
+        java.sql.Date sqlDate = java.sql.Date.valueOf("0001-01-01");
+        CSVObject csvObject = writeAndRead(configuration, new CSVStringBuilder(configuration) //
+                .append(timestamps[0]) //
+                .append(timestamps[1]) //
+                .append(timestamps[2]) //
+                .append(sqlDate) //
+                .eol());
+
+        assertEquals("0001-01-01T01:00:00.000+01:00", csvObject.get(0));
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], csvObject.getTimestamp(i));
+        }
+        assertEquals("01/01/0001", csvObject.get(3));
+        assertEquals(sqlDate, csvObject.getSqlDate(3));
+    }
+
+    @Test
+    public void testTwoDigitYears() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withDateFormat("dd/MM/yy") //
+                .withSqlDateFormat("d/M/y") //
+                .withTimestampFormat("yyMMdd HH:mm:ss.SSS") //
+                .build();
+        Date date = new Date(487_641_600_000L);
+        java.sql.Date sqlDate = java.sql.Date.valueOf("1950-12-31");
+        Timestamp timestamp = Timestamp.valueOf("1999-12-31 23:59:59.999");
+        CSVObject csvObject = writeAndRead(configuration, new CSVStringBuilder(configuration) //
+                .append(date) //
+                .append(sqlDate) //
+                .append(timestamp) //
+                .eol());
+
+        assertEquals("15/06/85", csvObject.get(0));
+        assertEquals(date, csvObject.getDate(0));
+        assertEquals(sqlDate, csvObject.getSqlDate(1));
+        assertEquals(timestamp, csvObject.getTimestamp(2));
+    }
+
+    @Test
+    public void testInvalidValues() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        CSVObject csvObject = writeAndRead(configuration, new CSVStringBuilder(configuration) //
+                .append("abc") //
+                .append(10_000_000_000L) //
+                .eol());
+
+        assertThrows(NumberFormatException.class, () -> csvObject.getInt(0));
+        assertThrows(NumberFormatException.class, () -> csvObject.getInt(1));
+        assertThrows(IllegalArgumentException.class, () -> csvObject.getBoolean(0));
+        assertThrows(IllegalArgumentException.class, () -> csvObject.getTimestamp(0));
+        assertEquals(10_000_000_000L, csvObject.getLong(1));
+    }
+}
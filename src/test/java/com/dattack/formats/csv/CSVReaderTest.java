@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVReaderTest {
+
+    private static List<List<String>> readAll(final CSVConfiguration.CsvConfigurationBuilder builder,
+                                              final String content) throws IOException {
+
+        File file = createFile(content);
+        List<List<String>> rows = CSVTestFiles.readAll(builder.withMemoryMapped(false).build(), file);
+        assertEquals(rows, CSVTestFiles.readAll(builder.withMemoryMapped(true).build(), file), "memory-mapped mode");
+        return rows;
+    }
+
+    @Test
+    public void testSimpleRows() throws IOException {
+
+        List<List<String>> rows = readAll(CSVConfiguration.custom(), "# comment\na,b,c\n\n  1,2,3  \n");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("1", "2", "3")), rows);
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+
+        List<List<String>> rows = readAll(CSVConfiguration.custom(),
+                "\"a,b\",\"say \\\"hi\\\"\",\"x\"\"y\",,last\nplain,,\n");
+
+        assertEquals(Arrays.asList(Arrays.asList("a,b", "say \"hi\"", "x\"y", "", "last"),
+                Arrays.asList("plain", "", "")), rows);
+    }
+
+    @Test
+    public void testRegexMetacharSeparator() throws IOException {
+
+        List<List<String>> rows = readAll(CSVConfiguration.custom().withSeparator("|"), "a|b\\|c|\"d|e\"\n");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b|c", "d|e")), rows);
+    }
+
+    @Test
+    public void testMultiCharSeparator() throws IOException {
+
+        List<List<String>> rows = readAll(CSVConfiguration.custom().withSeparator("::"), "a::b:c::\"d::e\"\n");
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b:c", "d::e")), rows);
+    }
+
+    @Test
+    public void testQuotedLineBreak() throws IOException {
+
+        String content = "1,\"first\nsecond\",3\n4,5,6\n";
+
+        assertEquals(Arrays.asList(Arrays.asList("1", "first\nsecond", "3"), Arrays.asList("4", "5", "6")),
+                readAll(CSVConfiguration.custom().withMultiline(true), content));
+        assertEquals(Arrays.asList(Arrays.asList("1", "first"), Arrays.asList("second\"", "3"),
+                Arrays.asList("4", "5", "6")), readAll(CSVConfiguration.custom(), content));
+    }
+
+    @Test
+    public void testReadWrittenData() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        String csv = new CSVStringBuilder(configuration) //
+                .append(1000L) //
+                .append("simple text") //
+                .append("text with \"special\", chars") //
+                .eol() //
+                .toString();
+
+        List<List<String>> rows = readAll(CSVConfiguration.custom().withEol("\n"), csv);
+
+        assertEquals(Arrays.asList(Arrays.asList("1000", "simple text", "text with \"special\", chars")), rows);
+    }
+
+    @Test
+    public void testMappedWindowBoundaries() throws IOException {
+
+        StringBuilder content = new StringBuilder();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            content.append(i).append(",\"value ").append(i).append("\",\u00e1\u00e9").append(i).append('\n');
+            expected.add(Arrays.asList(Integer.toString(i), "value " + i, "\u00e1\u00e9" + i));
+        }
+
+        CSVConfiguration configuration = CSVConfiguration.custom().build();
+        try (MappedRecordReader reader = new MappedRecordReader(configuration,
+                createFile(content.toString()).toPath(), StandardCharsets.UTF_8, 64)) {
+            assertEquals(expected, toList(reader::next));
+        }
+    }
+
+    @Test
+    public void testFieldView() throws IOException {
+
+        File file = createFile("abc,\"d,e\",\u00f1u\n");
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration configuration = CSVConfiguration.custom().withMemoryMapped(mapped).build();
+            try (CSVReader reader = new CSVReader(configuration, file)) {
+                CSVObject csvObject = reader.next();
+                CSVField field = new CSVField();
+                assertTrue(csvObject.getField(0, field).contentEquals("abc"));
+                assertEquals(3, field.length());
+                assertEquals('b', field.charAt(1));
+                assertTrue(csvObject.getField(1, field).contentEquals("d,e"));
+                assertEquals("\u00f1u", csvObject.getField(2, field).toString());
+                assertEquals("d,e", csvObject.getCharSequence(1).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelReader() throws IOException {
+
+        StringBuilder content = new StringBuilder("# header comment\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append(i).append(",\"multi\nline ").append(i).append("\",x").append(i).append('\n');
+            if (i % 100 == 0) {
+                content.append("# comment ").append(i).append("\n\n");
+            }
+        }
+        File file = createFile(content.toString());
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true).build();
+
+        List<List<String>> expected;
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            expected = toList(reader::next);
+        }
+        assertEquals(1000, expected.size());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelCSVReader parallelReader = new ParallelCSVReader(configuration, file, pool, 97);
+            List<List<String>> ordered = new ArrayList<>();
+            parallelReader.forEachOrdered(csvObject -> ordered.add(toStrings(csvObject)));
+            assertEquals(expected, ordered);
+
+            ConcurrentLinkedQueue<List<String>> unordered = new ConcurrentLinkedQueue<>();
+            parallelReader.forEach(csvObject -> unordered.add(toStrings(csvObject)));
+            assertEquals(expected.size(), unordered.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(unordered));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelReaderWithQuoteAtChunkStart() throws IOException {
+
+        // the second chunk starts at the closing quote, so its speculative parse sees an unterminated quoted field
+        StringBuilder content = new StringBuilder("id,text\n1,\"abcdef\n\",x\n");
+        for (int i = 2; i < 4000; i++) {
+            content.append(i).append(",abc\n");
+        }
+        File file = createFile(content.toString());
+        CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true).build();
+
+        List<List<String>> expected;
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            expected = toList(reader::next);
+        }
+        assertEquals(4000, expected.size());
+        assertEquals(Arrays.asList("1", "abcdef\n", "x"), expected.get(1));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> ordered = new ArrayList<>();
+            new ParallelCSVReader(configuration, file, pool, 10).forEachOrdered(row -> ordered.add(toStrings(row)));
+            assertEquals(expected, ordered);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelStream() throws IOException {
+
+        StringBuilder content = new StringBuilder();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            content.append(i).append(",\"text, ").append(i).append("\"\n");
+            expected.add(Arrays.asList(Integer.toString(i), "text, " + i));
+        }
+        File file = createFile(content.toString());
+        CSVConfiguration configuration = CSVConfiguration.custom().build();
+
+        try (CSVReader reader = new CSVReader(configuration, file);
+             java.util.stream.Stream<CSVObject> stream = reader.stream()) {
+            List<List<String>> rows = new ArrayList<>();
+            stream.parallel().map(CSVTestFiles::toStrings).forEachOrdered(rows::add);
+            assertEquals(expected, rows);
+        }
+
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            reader.next();
+            assertEquals(expected.size() - 1, reader.stream().count());
+        }
+    }
+
+    @Test
+    public void testBatchRead() throws IOException {
+
+        File file = createFile("# comment\n1,a\n2,b\n\n3,c\n4,d\n5,e\n");
+        CSVConfiguration configuration = CSVConfiguration.custom().build();
+
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            CSVObject[] buffer = new CSVObject[2];
+            assertEquals(2, reader.readInto(buffer));
+            assertEquals("1", buffer[0].get(0));
+            assertEquals("b", buffer[1].get(1));
+
+            List<CSVObject> batch = reader.readBatch(10);
+            assertEquals(3, batch.size());
+            assertEquals("5", batch.get(2).get(0));
+
+            assertEquals(0, reader.readInto(buffer));
+            assertTrue(reader.readBatch(10).isEmpty());
+        }
+    }
+
+    @Test
+    public void testVisitor() throws IOException {
+
+        File file = createFile("# comment\n1,\"a,b\"\n2,c\n\n3,\"d\\\"e\"\n");
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration configuration = CSVConfiguration.custom().withMemoryMapped(mapped).build();
+            try (CSVReader reader = new CSVReader(configuration, file)) {
+                List<List<String>> rows = new ArrayList<>();
+                reader.forEach(row -> rows.add(toStrings(row)));
+                assertEquals(Arrays.asList(Arrays.asList("1", "a,b"), Arrays.asList("2", "c"),
+                        Arrays.asList("3", "d\"e")), rows);
+            }
+        }
+    }
+
+    @Test
+    public void testInputSources() throws IOException {
+
+        String content = "# comment\n1,\"a,\u00e1\"\n2,\u00f1\n";
+        List<List<String>> expected = Arrays.asList(Arrays.asList("1", "a,\u00e1"), Arrays.asList("2", "\u00f1"));
+
+        Properties properties = new Properties();
+        properties.setProperty(CSVConfiguration.CHARSET_PROPERTY_NAME, "ISO-8859-1");
+        properties.setProperty(CSVConfiguration.BUFFER_SIZE_PROPERTY_NAME, "16");
+        CSVConfiguration configuration = CSVConfiguration.custom(properties).build();
+        byte[] latin1 = content.getBytes(StandardCharsets.ISO_8859_1);
+
+        try (CSVReader reader = new CSVReader(configuration, new ByteArrayInputStream(latin1))) {
+            assertEquals(expected, toList(reader::next));
+        }
+        try (CSVReader reader = new CSVReader(configuration,
+                Channels.newChannel(new ByteArrayInputStream(latin1)))) {
+            assertEquals(expected, toList(reader::next));
+        }
+
+        File file = createFile(latin1);
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration.CsvConfigurationBuilder builder = CSVConfiguration.custom(properties)
+                    .withMemoryMapped(mapped);
+            try (CSVReader reader = new CSVReader(builder.build(), file.toPath())) {
+                assertEquals(expected, toList(reader::next));
+            }
+        }
+
+        File gzipFile = createTempFile(".csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile.toPath()))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        CSVConfiguration gzipConfiguration = CSVConfiguration.custom().withMemoryMapped(true).build();
+        try (CSVReader reader = new CSVReader(gzipConfiguration, gzipFile)) {
+            assertEquals(expected, toList(reader::next));
+        }
+        try (CSVReader reader = new CSVReader(gzipConfiguration, gzipFile);
+             java.util.stream.Stream<CSVObject> stream = reader.stream()) {
+            assertEquals(expected.size(), stream.count());
+        }
+    }
+
+    private static List<List<String>> project(final List<List<String>> rows, final int... columns) {
+        List<List<String>> projected = new ArrayList<>();
+        for (List<String> row : rows) {
+            List<String> values = new ArrayList<>();
+            for (int column : columns) {
+                values.add(column < row.size() ? row.get(column) : "");
+            }
+            projected.add(values);
+        }
+        return projected;
+    }
+
+    @Test
+    public void testColumnProjection() throws IOException {
+
+        StringBuilder content = new StringBuilder("id,name,\"quoted, header\",amount,last\n# comment\n");
+        for (int i = 0; i < 3000; i++) {
+            content.append(i).append(",\"name ").append(i).append("\"\"\",x\\,").append(i) //
+                    .append(',').append(i * 10).append(i % 7 == 0 ? "\n" : ",\"l, " + i + "\"\n");
+        }
+        File file = createFile(content.toString());
+
+        List<List<String>> rows;
+        try (CSVReader reader = new CSVReader(CSVConfiguration.custom().build(), file)) {
+            rows = toList(reader::next);
+        }
+        List<List<String>> expected = project(rows.subList(1, rows.size()), 4, 1, 3);
+        assertEquals(Arrays.asList("", "name 7\"", "70"), expected.get(7));
+        assertEquals(Arrays.asList("l, 8", "name 8\"", "80"), expected.get(8));
+
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration byIndex = CSVConfiguration.custom().withMemoryMapped(mapped).withColumns(4, 1, 3).build();
+            CSVConfiguration byName = CSVConfiguration.custom().withMemoryMapped(mapped) //
+                    .withColumnNames("last", "name", "amount").build();
+            assertArrayEquals(new int[] {4, 1, 3}, byIndex.getColumns());
+            assertNull(byName.getColumns());
+
+            try (CSVReader reader = new CSVReader(byIndex, file)) {
+                assertEquals(project(rows, 4, 1, 3), toList(reader::next), "mapped: " + mapped);
+            }
+            try (CSVReader reader = new CSVReader(byName, file)) {
+                assertEquals(expected, toList(reader::next), "mapped: " + mapped);
+            }
+            try (CSVReader reader = new CSVReader(byName, file)) {
+                List<List<String>> visited = new ArrayList<>();
+                reader.forEach(row -> visited.add(toStrings(row)));
+                assertEquals(expected, visited, "mapped: " + mapped);
+            }
+        }
+
+        CSVConfiguration byName = CSVConfiguration.custom().withColumnNames("last", "name", "amount").build();
+        try (CSVReader reader = new CSVReader(byName, file);
+             java.util.stream.Stream<CSVObject> stream = reader.stream()) {
+            List<List<String>> streamed = new ArrayList<>();
+            stream.parallel().map(CSVTestFiles::toStrings).forEachOrdered(streamed::add);
+            assertEquals(expected, streamed);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> ordered = new ArrayList<>();
+            new ParallelCSVReader(byName, file, pool, 997).forEachOrdered(row -> ordered.add(toStrings(row)));
+            assertEquals(expected, ordered);
+        } finally {
+            pool.shutdown();
+        }
+
+        File multiline = createFile("a,b,c\n1,\"x\ny\",\"p\nq\",z\n2,\"w\",\"r\ns\"\n");
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration configuration = CSVConfiguration.custom().withMultiline(true) //
+                    .withMemoryMapped(mapped).withColumnNames("b").build();
+            try (CSVReader reader = new CSVReader(configuration, multiline)) {
+                assertEquals(Arrays.asList(Arrays.asList("x\ny"), Arrays.asList("w")), toList(reader::next));
+            }
+        }
+
+        CSVConfiguration unknown = CSVConfiguration.custom().withColumnNames("name", "unknown").build();
+        try (CSVReader reader = new CSVReader(unknown, file)) {
+            assertThrows(IOException.class, reader::next);
+        }
+        assertThrows(IllegalArgumentException.class, () -> CSVConfiguration.custom().withColumns(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> CSVConfiguration.custom().withColumns(-1));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVRowFilterTest {
+
+    private static final int ROWS = 5000;
+
+    private static File createFile() throws IOException {
+
+        StringBuilder content = new StringBuilder("# tenants\n");
+        for (int i = 0; i < ROWS; i++) {
+            content.append("tenant-").append(i % 50).append(',') //
+                    .append(i % 10 == 0 ? "\"escaped \"\"" + i + "\"\"\"" : "name \u00f1 " + i).append(',') //
+                    .append(i % 13 == 0 ? "" : Integer.toString(i)).append(',') //
+                    .append(i / 100.0).append('\n');
+        }
+        return CSVTestFiles.createFile(content.toString());
+    }
+
+    private static void assertFilter(final File file, final CSVRowFilter filter,
+                                     final Predicate<List<String>> expectedFilter) throws IOException {
+
+        List<List<String>> expected = new ArrayList<>();
+        for (List<String> row : readAll(CSVConfiguration.custom().build(), file)) {
+            if (expectedFilter.test(row)) {
+                expected.add(row);
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        for (boolean mapped : new boolean[] {false, true}) {
+            CSVConfiguration configuration = CSVConfiguration.custom().withMemoryMapped(mapped) //
+                    .withFilter(filter).build();
+            assertEquals(expected, readAll(configuration, file), "mapped: " + mapped);
+
+            List<List<String>> visited = new ArrayList<>();
+            try (CSVReader reader = new CSVReader(configuration, file)) {
+                reader.forEach(row -> visited.add(toStrings(row)));
+            }
+            assertEquals(expected, visited, "mapped: " + mapped);
+        }
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withFilter(filter).build();
+        try (CSVReader reader = new CSVReader(configuration, file); Stream<CSVObject> stream = reader.stream()) {
+            List<List<String>> streamed = new ArrayList<>();
+            stream.parallel().map(CSVTestFiles::toStrings).forEachOrdered(streamed::add);
+            assertEquals(expected, streamed);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> ordered = new ArrayList<>();
+            new ParallelCSVReader(configuration, file, pool, 4096).forEachOrdered(row -> ordered.add(toStrings(row)));
+            assertEquals(expected, ordered);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEqualTo() throws IOException {
+        File file = createFile();
+        assertFilter(file, CSVRowFilter.equalTo(0, "tenant-7"), row -> row.get(0).equals("tenant-7"));
+        assertFilter(file, CSVRowFilter.equalTo(1, "escaped \"40\""), row -> row.get(1).equals("escaped \"40\""));
+        assertFilter(file, CSVRowFilter.equalTo(1, "name \u00f1 41"), row -> row.get(1).equals("name \u00f1 41"));
+    }
+
+    @Test
+    public void testStartsWith() throws IOException {
+        assertFilter(createFile(), CSVRowFilter.startsWith(1, "escaped \"1"),
+                row -> row.get(1).startsWith("escaped \"1"));
+    }
+
+    @Test
+    public void testIn() throws IOException {
+        List<String> tenants = Arrays.asList("tenant-1", "tenant-12", "tenant-49", "tenant-50");
+        assertFilter(createFile(), CSVRowFilter.in(0, tenants.toArray(new String[0])),
+                row -> tenants.contains(row.get(0)));
+    }
+
+    @Test
+    public void testBetween() throws IOException {
+        File file = createFile();
+        assertFilter(file, CSVRowFilter.between(2, 100L, 199L), row -> !row.get(2).isEmpty()
+                && Long.parseLong(row.get(2)) >= 100 && Long.parseLong(row.get(2)) <= 199);
+        assertFilter(file, CSVRowFilter.between(3, 10.5, 12.0),
+                row -> Double.parseDouble(row.get(3)) >= 10.5 && Double.parseDouble(row.get(3)) <= 12.0);
+    }
+
+    @Test
+    public void testComposition() throws IOException {
+        File file = createFile();
+        assertFilter(file, CSVRowFilter.equalTo(0, "tenant-3").and(CSVRowFilter.between(2, 0L, 1000L).negate()),
+                row -> row.get(0).equals("tenant-3") && (row.get(2).isEmpty() || Long.parseLong(row.get(2)) > 1000));
+        CSVRowFilter longName = CSVRowFilter.matches(1, field -> field.length() > 15);
+        assertFilter(file, CSVRowFilter.equalTo(0, "tenant-3").or(longName),
+                row -> row.get(0).equals("tenant-3") || row.get(1).length() > 15);
+    }
+
+    @Test
+    public void testProjectedFilter() throws IOException {
+
+        File file = createFile();
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withColumns(2, 0) //
+                .withFilter(CSVRowFilter.equalTo(1, "tenant-0").negate()) //
+                .build();
+        List<List<String>> rows = readAll(configuration, file);
+        assertEquals(ROWS - ROWS / 50, rows.size());
+        assertEquals(Arrays.asList("1", "tenant-1"), rows.get(0));
+
+        configuration = CSVConfiguration.custom() //
+                .withColumns(2, 0) //
+                .withFilter(CSVRowFilter.equalTo(1, "tenant-0").and(CSVRowFilter.equalTo(0, "50"))) //
+                .build();
+        assertEquals(Arrays.asList(Arrays.asList("50", "tenant-0")), readAll(configuration, file));
+
+        // a row without the column doesn't match
+        configuration = CSVConfiguration.custom().withFilter(CSVRowFilter.equalTo(4, "")).build();
+        assertTrue(readAll(configuration, file).isEmpty());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> CSVRowFilter.equalTo(-1, "x"));
+        assertThrows(NullPointerException.class, () -> CSVRowFilter.in(0, "x", null));
+    }
+}
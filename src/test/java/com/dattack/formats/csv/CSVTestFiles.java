@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The temporary files and the conversions of the read objects shared by the tests.
+ *
+ * @author cvarela
+ * @since 0.3
+ */
+final class CSVTestFiles {
+
+    /**
+     * A source of objects, such as the {@code next} method of a reader.
+     */
+    interface RowSource {
+        CSVObject next() throws IOException;
+    }
+
+    private CSVTestFiles() {
+        // static class
+    }
+
+    /**
+     * Creates an empty temporary file that is deleted when the virtual machine terminates.
+     *
+     * @param suffix the suffix of the file name
+     */
+    static File createTempFile(final String suffix) throws IOException {
+        File file = File.createTempFile("csv-test-", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Creates a temporary CSV file with the given content, encoded in UTF-8.
+     */
+    static File createFile(final String content) throws IOException {
+        return createFile(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a temporary CSV file with the given content.
+     */
+    static File createFile(final byte[] content) throws IOException {
+        File file = createTempFile(".csv");
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    static List<String> toStrings(final CSVObject csvObject) {
+        List<String> row = new ArrayList<>();
+        for (int i = 0; i < csvObject.getSize(); i++) {
+            row.add(csvObject.get(i));
+        }
+        return row;
+    }
+
+    static List<List<String>> toList(final RowSource source) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        CSVObject csvObject;
+        while ((csvObject = source.next()) != null) {
+            rows.add(toStrings(csvObject));
+        }
+        return rows;
+    }
+
+    /**
+     * Reads all the objects of a file using {@link CSVReader#next()}.
+     */
+    static List<List<String>> readAll(final CSVConfiguration configuration, final File file) throws IOException {
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            return toList(reader::next);
+        }
+    }
+}
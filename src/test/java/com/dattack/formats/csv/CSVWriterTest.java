@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CSVWriterTest {
+
+    private static <T extends CSVStringBuilder> T writeRows(final T builder) {
+        builder.comment("header \u00f1");
+        for (int i = 0; i < 500; i++) {
+            builder.append(i) //
+                    .append("text, \"" + i + "\"") //
+                    .append(new BigDecimal("1.5").multiply(BigDecimal.valueOf(i))) //
+                    .append(new Timestamp(1577970855003L + i)) //
+                    .append((String) null) //
+                    .eol();
+            if (i % 100 == 0) {
+                builder.comment().append("comment " + i).eol();
+            }
+        }
+        return builder;
+    }
+
+    @Test
+    public void testSameOutputAsBuilder() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withFlushThreshold(100) //
+                .build();
+        String expected = writeRows(new CSVStringBuilder(configuration)).toString();
+
+        StringWriter stringWriter = new StringWriter();
+        try (CSVWriter writer = writeRows(new CSVWriter(configuration, stringWriter))) {
+            assertTrue(writer.toString().length() < 200);
+        }
+        assertEquals(expected, stringWriter.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CSVWriter writer = new CSVWriter(configuration, out)) {
+            writeRows(writer);
+        }
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out.reset();
+        try (CSVWriter writer = new CSVWriter(configuration, Channels.newChannel(out))) {
+            writeRows(writer);
+        }
+        assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withCharset(StandardCharsets.ISO_8859_1) //
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CSVWriter writer = new CSVWriter(configuration, out)) {
+            writer.append("\u00e1").append(1).eol();
+            assertEquals(0, out.size());
+
+            writer.flush();
+            assertArrayEquals("\"\u00e1\",1\n".getBytes(StandardCharsets.ISO_8859_1), out.toByteArray());
+            assertEquals("", writer.toString());
+        }
+    }
+
+    private static <T extends CSVStringBuilder> T writeMultibyteRows(final T builder) {
+        writeRows(builder);
+        for (int i = 0; i < 20_000; i++) {
+            builder.append("\ud83d\ude00" + i + "\u00f1");
+        }
+        builder.eol().append("\u00e9\u20ac lone \udc00 end").eol();
+        return builder;
+    }
+
+    @Test
+    public void testUtf8FileChannel() throws IOException {
+
+        Path path = Files.createTempFile("csv-writer", ".csv");
+        try {
+            for (boolean direct : new boolean[] {false, true}) {
+                CSVConfiguration configuration = CSVConfiguration.custom() //
+                        .withEol("\n") //
+                        .withTimeZoneName("UTC") //
+                        .withFlushThreshold(1000) //
+                        .withDirectBuffers(direct) //
+                        .build();
+                String expected = writeMultibyteRows(new CSVStringBuilder(configuration)).toString();
+
+                try (CSVWriter writer = new CSVWriter(configuration,
+                        FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+                    writeMultibyteRows(writer);
+                }
+                assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
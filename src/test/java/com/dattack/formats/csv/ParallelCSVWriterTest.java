@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ParallelCSVWriterTest {
+
+    private static final int ROWS = 10_000;
+
+    private static Object[] row(final int index) {
+        return new Object[] {index, "text \u00f1, \"" + index + "\"", BigDecimal.valueOf(index, 2),
+            index % 3 == 0 ? null : new Timestamp(1577970855003L + index), index % 2 == 0};
+    }
+
+    @Test
+    public void testSameOutputAsBuilder() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withCharset(StandardCharsets.ISO_8859_1) //
+                .build();
+
+        CSVStringBuilder builder = new CSVStringBuilder(configuration);
+        for (int i = 0; i < ROWS; i++) {
+            for (Object value : row(i)) {
+                builder.appendObject(value);
+            }
+            builder.eol();
+        }
+        String expected = builder.toString();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            StringWriter stringWriter = new StringWriter();
+            try (ParallelCSVWriter writer = new ParallelCSVWriter(configuration, stringWriter, pool, 100)) {
+                for (int i = 0; i < ROWS; i++) {
+                    writer.write(row(i));
+                }
+            }
+            assertEquals(expected, stringWriter.toString());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ParallelCSVWriter writer = new ParallelCSVWriter(configuration, out, pool, 333)) {
+                Object[] values = new Object[5];
+                for (int i = 0; i < ROWS; i++) {
+                    System.arraycopy(row(i), 0, values, 0, values.length);
+                    writer.write(values);
+                    if (i == ROWS / 2) {
+                        writer.flush();
+                        assertEquals(expected.indexOf('\n', expected.indexOf("\n" + i + ",") + 1) + 1, out.size());
+                    }
+                }
+            }
+            assertEquals(expected, new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
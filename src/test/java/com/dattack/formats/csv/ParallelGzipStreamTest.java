@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import static com.dattack.formats.csv.CSVTestFiles.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ParallelGzipStreamTest {
+
+    private static byte[] data(final int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(length);
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    private static byte[] compress(final byte[] data, final ForkJoinPool pool, final int blockSize)
+            throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new ParallelGzipOutputStream(out, pool, blockSize, 6)) {
+            // writes of several sizes, so some of them cross the end of a block
+            int offset = 0;
+            for (int i = 1; offset < data.length; i++) {
+                int length = Math.min(i * 37 % 1000, data.length - offset);
+                gzip.write(data, offset, length);
+                offset += length;
+                if (offset < data.length) {
+                    gzip.write(data[offset++]);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int length : new int[] {0, 1, 1000, 1024, 100_000}) {
+                byte[] data = data(length);
+                byte[] compressed = compress(data, pool, 1024);
+
+                // a standard multi-member stream
+                assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+                assertArrayEquals(data, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(compressed),
+                        pool)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadStandardGzip() throws IOException {
+
+        byte[] data = data(50_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        byte[] standard = out.toByteArray();
+        assertArrayEquals(data, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(standard))));
+
+        // the members without size are read sequentially after the parallel ones
+        byte[] parallel = compress(data, ForkJoinPool.commonPool(), 4096);
+        byte[] concatenated = Arrays.copyOf(parallel, parallel.length + standard.length);
+        System.arraycopy(standard, 0, concatenated, parallel.length, standard.length);
+        byte[] expected = Arrays.copyOf(data, data.length * 2);
+        System.arraycopy(data, 0, expected, data.length, data.length);
+        assertArrayEquals(expected, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(concatenated))));
+    }
+
+    @Test
+    public void testCorruptMember() throws IOException {
+
+        byte[] compressed = compress(data(10_000), ForkJoinPool.commonPool(), 1024);
+        compressed[compressed.length / 2] ^= 0x55;
+        assertThrows(ZipException.class,
+            () -> readAll(new ParallelGzipInputStream(new ByteArrayInputStream(compressed))));
+
+        byte[] truncated = Arrays.copyOf(compress(data(10_000), ForkJoinPool.commonPool(), 1024), 100);
+        assertThrows(IOException.class,
+            () -> readAll(new ParallelGzipInputStream(new ByteArrayInputStream(truncated))));
+    }
+
+    @Test
+    public void testCSVFile() throws IOException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        File file = createTempFile(".csv.gz");
+        try (CSVWriter writer = new CSVWriter(configuration,
+                new ParallelGzipOutputStream(Files.newOutputStream(file.toPath()), ForkJoinPool.commonPool(), 512,
+                        1))) {
+            for (int i = 0; i < 1000; i++) {
+                writer.append(i).append("row " + i).eol();
+            }
+        }
+
+        try (CSVReader reader = new CSVReader(configuration, file)) {
+            for (int i = 0; i < 1000; i++) {
+                CSVObject object = reader.next();
+                assertEquals(i, object.getInt(0));
+                assertEquals("row " + i, object.getCharSequence(1).toString());
+            }
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Blob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ResultSetExporterTest {
+
+    private static final String[] LABELS = {"ID", "NAME", "AMOUNT", "RATIO", "ACTIVE", "CREATED", "SCORE", "EXTRA"};
+
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE, Types.BOOLEAN,
+        Types.TIMESTAMP, Types.REAL, Types.OTHER};
+
+    private static Object[] row(final int index) {
+        boolean hasNulls = index % 7 == 0;
+        return new Object[] {(long) index, hasNulls ? null : "name \"" + index + "\"", BigDecimal.valueOf(index, 2),
+            hasNulls ? null : index / 4.0, hasNulls ? null : index % 2 == 0, new Timestamp(1577970855003L + index),
+            index * 0.5f, hasNulls ? null : new StringBuilder("x").append(index)};
+    }
+
+    /**
+     * Creates a forward-only result set over the given rows, supporting the getters used by the exporter.
+     */
+    private static ResultSet resultSet(final List<Object[]> rows, final int[] fetchSize) {
+        return resultSet(LABELS, TYPES, rows, fetchSize);
+    }
+
+    private static ResultSet resultSet(final String[] labels, final int[] types, final List<Object[]> rows,
+                                       final int[] fetchSize) {
+
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetExporterTest.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return labels.length;
+                        case "getColumnLabel":
+                            return labels[(Integer) args[0] - 1];
+                        case "getColumnType":
+                            return types[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        int[] cursor = {-1};
+        Object[] lastValue = {null};
+        return (ResultSet) Proxy.newProxyInstance(ResultSetExporterTest.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.size();
+                        case "getMetaData":
+                            return metaData;
+                        case "setFetchSize":
+                            fetchSize[0] = (Integer) args[0];
+                            return null;
+                        case "wasNull":
+                            return lastValue[0] == null;
+                        default:
+                            break;
+                    }
+                    if (!method.getName().startsWith("get")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Object value = rows.get(cursor[0])[(Integer) args[0] - 1];
+                    lastValue[0] = value;
+                    switch (method.getName()) {
+                        case "getLong":
+                            return value == null ? 0L : value;
+                        case "getDouble":
+                            return value == null ? 0.0 : value;
+                        case "getFloat":
+                            return value == null ? 0.0f : value;
+                        case "getBoolean":
+                            return value == null ? Boolean.FALSE : value;
+                        default:
+                            return value;
+                    }
+                });
+    }
+
+    @Test
+    public void testExport() throws SQLException {
+
+        CSVConfiguration configuration = CSVConfiguration.custom() //
+                .withEol("\n") //
+                .withTimeZoneName("UTC") //
+                .withNullValue("NULL") //
+                .build();
+
+        List<Object[]> rows = new ArrayList<>();
+        CSVStringBuilder expected = new CSVStringBuilder(configuration);
+        for (String label : LABELS) {
+            expected.append(label);
+        }
+        expected.eol();
+        for (int i = 0; i < 2_500; i++) {
+            rows.add(row(i));
+            for (Object value : row(i)) {
+                expected.appendObject(value);
+            }
+            expected.eol();
+        }
+
+        int[] fetchSize = {0};
+        CSVStringBuilder builder = new CSVStringBuilder(configuration);
+        long count = new ResultSetExporter() //
+                .withHeader(true) //
+                .withFetchSize(500) //
+                .withBatchSize(100) //
+                .export(resultSet(rows, fetchSize), builder);
+
+        assertEquals(2_500, count);
+        assertEquals(500, fetchSize[0]);
+        assertEquals(expected.toString(), builder.toString());
+    }
+
+    @Test
+    public void testEmptyResultSet() throws SQLException {
+
+        CSVStringBuilder builder = new CSVStringBuilder(CSVConfiguration.custom().build());
+        assertEquals(0, new ResultSetExporter().export(resultSet(new ArrayList<>(), new int[1]), builder));
+        assertEquals("", builder.toString());
+    }
+
+    private static Blob blob(final byte[] data, final int[] freed) {
+        return (Blob) Proxy.newProxyInstance(ResultSetExporterTest.class.getClassLoader(),
+                new Class<?>[] {Blob.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "length":
+                            return (long) data.length;
+                        case "getBytes":
+                            int from = (int) ((Long) args[0] - 1);
+                            return Arrays.copyOfRange(data, from, from + (Integer) args[1]);
+                        case "free":
+                            freed[0]++;
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    public void testBinaryColumns() throws SQLException {
+
+        String[] labels = {"ID", "DATA", "DOCUMENT", "OTHER"};
+        int[] types = {Types.INTEGER, Types.VARBINARY, Types.BLOB, Types.OTHER};
+        int[] freed = {0};
+        byte[] data = {0, 1, (byte) 0xAB, (byte) 0xFF, 0x7F};
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {1L, data, blob(new byte[] {'C', 'S', 'V'}, freed), blob(new byte[] {-1}, freed)});
+        rows.add(new Object[] {2L, null, null, null});
+        rows.add(new Object[] {3L, new byte[0], blob(new byte[0], freed), new byte[] {16}});
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").withNullValue("NULL").build();
+        CSVStringBuilder builder = new CSVStringBuilder(configuration);
+        new ResultSetExporter().export(resultSet(labels, types, rows, new int[1]), builder);
+        assertEquals("1,\"0001abff7f\",\"435356\",\"ff\"\n2,NULL,NULL,NULL\n3,\"\",\"\",\"10\"\n",
+                builder.toString());
+        assertEquals(3, freed[0]);
+
+        rows.set(0, new Object[] {1L, data, blob(new byte[] {'C', 'S', 'V'}, freed), null});
+        builder = new CSVStringBuilder(configuration);
+        new ResultSetExporter().withBinaryEncoding(ResultSetExporter.BinaryEncoding.BASE64) //
+                .export(resultSet(labels, types, rows.subList(0, 1), new int[1]), builder);
+        assertEquals("1,\"AAGr/38=\",\"Q1NW\",NULL\n", builder.toString());
+    }
+
+    @Test
+    public void testUnsupportedColumns() {
+
+        CSVStringBuilder builder = new CSVStringBuilder(CSVConfiguration.custom().build());
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {1L, null});
+        SQLException exception = assertThrows(SQLFeatureNotSupportedException.class, () -> new ResultSetExporter() //
+                .withHeader(true) //
+                .export(resultSet(new String[] {"ID", "TAGS"}, new int[] {Types.BIGINT, Types.ARRAY}, rows,
+                        new int[1]), builder));
+        assertTrue(exception.getMessage().contains("ARRAY"), exception.getMessage());
+        assertEquals("", builder.toString());
+    }
+}
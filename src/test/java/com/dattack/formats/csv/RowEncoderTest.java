@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020, The Dattack team (http://www.dattack.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dattack.formats.csv;
+
+import com.dattack.formats.csv.RowSchema.ColumnType;
+import com.dattack.formats.csv.RowSchema.Quoting;
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class RowEncoderTest {
+
+    private static final RowSchema SCHEMA = RowSchema.custom() //
+            .addColumn(ColumnType.LONG) //
+            .addColumn(ColumnType.STRING) //
+            .addColumn(ColumnType.DOUBLE) //
+            .addColumn(ColumnType.DOUBLE, "%.2f") //
+            .addColumn(ColumnType.DECIMAL) //
+            .addColumn(ColumnType.BOOLEAN) //
+            .addColumn(ColumnType.DATE) //
+            .addColumn(ColumnType.SQL_DATE) //
+            .addColumn(ColumnType.TIME) //
+            .addColumn(ColumnType.TIMESTAMP) //
+            .addColumn(ColumnType.STRING, "[%8s]") //
+            .addColumn(ColumnType.LONG, "%05d") //
+            .build();
+
+    private static void appendRow(final CSVStringBuilder builder, final int index) {
+        boolean hasNulls = index % 5 == 0;
+        builder.append((long) index) //
+                .append(hasNulls ? null : "text, \"" + index + "\"\nline") //
+                .append(index / 8.0) //
+                .append(index * 1.005, "%.2f") //
+                .append(hasNulls ? null : BigDecimal.valueOf(index, 3)) //
+                .append(hasNulls ? null : index % 2 == 0) //
+                .append(new Date(1577970855003L + index)) //
+                .append(new java.sql.Date(1577970855003L + index)) //
+                .append(new Time(1577970855003L + index)) //
+                .append(hasNulls ? null : new Timestamp(1577970855003L + index)) //
+                .append("v" + index, "[%8s]") //
+                .append(Long.valueOf(index), "%05d") //
+                .eol();
+    }
+
+    private static Object[] values(final int index) {
+        boolean hasNulls = index % 5 == 0;
+        return new Object[] {(long) index, hasNulls ? null : "text, \"" + index + "\"\nline", index / 8.0,
+            index * 1.005, hasNulls ? null : BigDecimal.valueOf(index, 3), hasNulls ? null : index % 2 == 0,
+            new Date(1577970855003L + index), new java.sql.Date(1577970855003L + index),
+            new Time(1577970855003L + index), hasNulls ? null : new Timestamp(1577970855003L + index),
+            "v" + index, (long) index};
+    }
+
+    private static void assertSameOutput(final CSVConfiguration configuration) {
+
+        RowEncoder encoder = SCHEMA.compile(configuration);
+        CSVStringBuilder expected = new CSVStringBuilder(configuration);
+        CSVStringBuilder objects = new CSVStringBuilder(configuration);
+        CSVStringBuilder arrays = new CSVStringBuilder(configuration);
+        for (int i = 0; i < 200; i++) {
+            appendRow(expected, i);
+            Object[] values = values(i);
+            encoder.encode(objects, values);
+            encoder.encode(arrays, new long[] {i, i}, new double[] {i / 8.0, i * 1.005},
+                    new Object[] {values[1], values[4], values[5], values[6], values[7], values[8], values[9],
+                        values[10]});
+        }
+        assertEquals(expected.toString(), objects.toString());
+        assertEquals(expected.toString(), arrays.toString());
+    }
+
+    @Test
+    public void testSameOutputAsBuilder() {
+
+        assertSameOutput(CSVConfiguration.custom().withEol("\n").withTimeZoneName("UTC").build());
+        assertSameOutput(CSVConfiguration.custom() //
+                .withSeparator("\t") //
+                .withQuoteChar('\u0000') //
+                .withNullValue("(NULL)") //
+                .withTrueValue("T") //
+                .withFalseValue("F") //
+                .withEol("<EOL>\n") //
+                .build());
+        assertSameOutput(CSVConfiguration.custom().withQuoteChar('#').withEscapeChar('\u0000').build());
+    }
+
+    @Test
+    public void testQuoting() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        RowEncoder encoder = RowSchema.custom() //
+                .addColumn(ColumnType.LONG, null, Quoting.ALWAYS) //
+                .addColumn(ColumnType.STRING, null, Quoting.NEVER) //
+                .addColumn(ColumnType.BOOLEAN, null, Quoting.NEVER) //
+                .addColumn(ColumnType.STRING, "%s", Quoting.ALWAYS) //
+                .build() //
+                .compile(configuration);
+
+        CSVStringBuilder builder = new CSVStringBuilder(configuration);
+        encoder.encode(builder, 1, "a,b", true, "c\"d");
+        assertEquals("\"1\",a\\,b,true,\"c\\\"d\"\n", builder.toString());
+    }
+
+    @Test
+    public void testSeparatorWithoutEscapeChar() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").withEscapeChar('\u0000').build();
+        RowEncoder encoder = RowSchema.custom() //
+                .addColumn(ColumnType.STRING, null, Quoting.NEVER) //
+                .addColumn(ColumnType.STRING, "<%s>", Quoting.NEVER) //
+                .addColumn(ColumnType.STRING, null, Quoting.NEVER) //
+                .build() //
+                .compile(configuration);
+
+        CSVStringBuilder builder = new CSVStringBuilder(configuration);
+        encoder.encode(builder, "a,\"b\"", "c,d", "e");
+        assertEquals("\"a,\"\"b\"\"\",<\"c,d\">,e\n", builder.toString());
+    }
+
+    @Test
+    public void testMixedWithAppends() {
+
+        CSVConfiguration configuration = CSVConfiguration.custom().withEol("\n").build();
+        RowEncoder encoder = RowSchema.custom().addColumn(ColumnType.LONG).addColumn(ColumnType.LONG).build() //
+                .compile(configuration);
+
+        CSVStringBuilder builder = new CSVStringBuilder(configuration).comment("header");
+        encoder.encode(builder, 1L, 2L);
+        builder.append(0);
+        encoder.encode(builder, 3L, 4L);
+        builder.comment().append("open comment");
+        encoder.encode(builder, 5L, 6L);
+        assertEquals("#header\n1,2\n0,3,4\n#open comment\n5,6\n", builder.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode(builder, 1L));
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode(builder, new long[1], new double[0],
+                new Object[0]));
+    }
+}